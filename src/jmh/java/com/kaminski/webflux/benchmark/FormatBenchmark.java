@@ -0,0 +1,108 @@
+package com.kaminski.webflux.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.kaminski.webflux.mapper.UserProtoMapper;
+import com.kaminski.webflux.model.proto.UserPageMessage;
+import com.kaminski.webflux.model.proto.UserRequestMessage;
+import com.kaminski.webflux.model.request.UserRequest;
+import com.kaminski.webflux.model.response.PageResponse;
+import com.kaminski.webflux.model.response.UserResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode/decode throughput per wire format. Bytes on wire (raw and gzip, which is what
+ * server.compression applies to large lists) are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormatBenchmark {
+
+    @Param({"json", "smile", "cbor", "protobuf"})
+    private String format;
+
+    private final UserRequest request = new UserRequest("Willian", "willian@mail.com", "123456");
+    private final PageResponse<UserResponse> page = new PageResponse<>(IntStream.range(0, 100)
+            .mapToObj(i -> new UserResponse("63d1f9b0e2c4a55b1c0f8a" + String.format("%02x", i),
+                    "Willian " + i, "willian" + i + "@mail.com"))
+            .toList(), "NjNkMWY5YjBlMmM0YTU1YjFjMGY4YTYz");
+
+    private ObjectWriter pageWriter;
+    private ObjectReader pageReader;
+    private ObjectReader requestReader;
+    private byte[] encodedRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (!"protobuf".equals(format)) {
+            var mapper = new ObjectMapper(factory());
+            var pageType = mapper.getTypeFactory().constructParametricType(PageResponse.class, UserResponse.class);
+            pageWriter = mapper.writerFor(pageType);
+            pageReader = mapper.readerFor(pageType);
+            requestReader = mapper.readerFor(UserRequest.class);
+        }
+        encodedRequest = "protobuf".equals(format)
+                ? UserProtoMapper.toMessage(request).toByteArray()
+                : new ObjectMapper(factory()).writeValueAsBytes(request);
+        var encodedPage = encodePage();
+        System.out.printf("%n%s: request=%d B, page(100)=%d B, page(100) gzip=%d B%n",
+                format, encodedRequest.length, encodedPage.length, gzip(encodedPage).length);
+    }
+
+    @Benchmark
+    public byte[] encodePage() throws IOException {
+        if ("protobuf".equals(format)) {
+            return UserProtoMapper.toMessage(page).toByteArray();
+        }
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public UserRequest decodeRequest() throws IOException {
+        if ("protobuf".equals(format)) {
+            return UserProtoMapper.toRequest(UserRequestMessage.parseFrom(encodedRequest));
+        }
+        return requestReader.readValue(encodedRequest);
+    }
+
+    @Benchmark
+    public List<UserResponse> roundTripPage() throws IOException {
+        var bytes = encodePage();
+        if ("protobuf".equals(format)) {
+            return UserPageMessage.parseFrom(bytes).getContentList().stream()
+                    .map(UserProtoMapper::toResponse)
+                    .toList();
+        }
+        PageResponse<UserResponse> decoded = pageReader.readValue(bytes);
+        return decoded.content();
+    }
+
+    private JsonFactory factory() {
+        return switch (format) {
+            case "smile" -> new SmileFactory();
+            case "cbor" -> new CBORFactory();
+            default -> new JsonFactory();
+        };
+    }
+
+    private static byte[] gzip(final byte[] bytes) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.kaminski.webflux.benchmark;
+
+import com.kaminski.webflux.entity.User;
+import com.kaminski.webflux.mapper.UserMapper;
+import com.kaminski.webflux.mapper.UserMapperImpl;
+import com.kaminski.webflux.model.request.UserRequest;
+import com.kaminski.webflux.model.response.UserResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MapperBenchmark {
+
+    private final UserMapper mapper = new UserMapperImpl();
+    private final UserRequest request = new UserRequest("Willian", "willian@mail.com", "123456");
+    private final UserRequest patch = new UserRequest("Kaminski", null, null);
+    private User user;
+
+    @Setup
+    public void setUp() {
+        user = newUser();
+    }
+
+    @Benchmark
+    public User toEntity() {
+        return mapper.toEntity(request);
+    }
+
+    @Benchmark
+    public User toEntityMappingTarget(final Target target) {
+        return mapper.toEntity(patch, target.user);
+    }
+
+    @Benchmark
+    public UserResponse toResponse() {
+        return mapper.toResponse(user);
+    }
+
+    private static User newUser() {
+        return User.builder().id("63d1f9b0e2c4a55b1c0f8a11").name("Willian")
+                .email("willian@mail.com").password("123456").build();
+    }
+
+    @State(Scope.Thread)
+    public static class Target {
+
+        private User user;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            user = newUser();
+        }
+
+    }
+
+}
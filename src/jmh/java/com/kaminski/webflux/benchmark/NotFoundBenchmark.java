@@ -0,0 +1,70 @@
+package com.kaminski.webflux.benchmark;
+
+import com.kaminski.webflux.controller.exceptions.ControllerExceptionHandler;
+import com.kaminski.webflux.entity.User;
+import com.kaminski.webflux.service.exeception.ObjectNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the allocation per lookup of the former eager not-found handling (String.format on
+ * every call, exception with a captured stack trace) against the lazy, stackless one used by
+ * UserService.handleNotFound, and measures the full 404 path through ControllerExceptionHandler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NotFoundBenchmark {
+
+    private static final String USER_TYPE = User.class.toString();
+
+    private final String id = "63d1f9b0e2c4a55b1c0f8a11";
+    private final User user = User.builder().id(id).name("Willian").build();
+    private final ControllerExceptionHandler handler = new ControllerExceptionHandler(new SimpleMeterRegistry());
+    private final ServerHttpRequest request = MockServerHttpRequest.get("/v1/users/" + id).build();
+
+    @Benchmark
+    public void eagerFound(Blackhole blackhole) {
+        eager(Mono.just(user), id).subscribe(blackhole::consume, blackhole::consume);
+    }
+
+    @Benchmark
+    public void lazyFound(Blackhole blackhole) {
+        lazy(Mono.just(user), id).subscribe(blackhole::consume, blackhole::consume);
+    }
+
+    @Benchmark
+    public void eagerNotFound(Blackhole blackhole) {
+        eager(Mono.<User>empty(), id).subscribe(blackhole::consume, blackhole::consume);
+    }
+
+    @Benchmark
+    public void lazyNotFound(Blackhole blackhole) {
+        lazy(Mono.<User>empty(), id).subscribe(blackhole::consume, blackhole::consume);
+    }
+
+    @Benchmark
+    public void lazyNotFoundResponse(Blackhole blackhole) {
+        lazy(Mono.<Object>empty(), id)
+                .onErrorResume(ObjectNotFoundException.class, e -> handler.objectNotFoundException(e, request).getBody())
+                .subscribe(blackhole::consume, blackhole::consume);
+    }
+
+    private static <T> Mono<T> eager(Mono<T> mono, String id) {
+        var message = String.format("Object not found. Id: %s, Type: %s", id, User.class);
+        return mono.switchIfEmpty(Mono.error(new RuntimeException(message)));
+    }
+
+    // Same as UserService.handleNotFound
+    private static <T> Mono<T> lazy(Mono<T> mono, String id) {
+        return mono.switchIfEmpty(Mono.error(() ->
+                new ObjectNotFoundException("Object not found. Id: " + id + ", Type: " + USER_TYPE)));
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.kaminski.webflux.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.kaminski.webflux.model.request.UserRequest;
+import com.kaminski.webflux.model.response.UserResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectWriter writer = objectMapper.writerFor(UserResponse.class);
+    private final UserResponse response =
+            new UserResponse("63d1f9b0e2c4a55b1c0f8a11", "Willian", "willian@mail.com");
+    private final byte[] request =
+            "{\"name\":\"Willian\",\"email\":\"willian@mail.com\",\"password\":\"123456\"}".getBytes(UTF_8);
+
+    @Benchmark
+    public byte[] encodeResponse() throws JsonProcessingException {
+        return writer.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public UserRequest decodeRequest() throws IOException {
+        return objectMapper.readValue(request, UserRequest.class);
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.kaminski.webflux.benchmark;
+
+import com.kaminski.webflux.model.request.UserRequest;
+import com.kaminski.webflux.validator.TrimStringValidator;
+import com.kaminski.webflux.validator.UserRequestValidator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValidationBenchmark {
+
+    private final UserRequest valid = new UserRequest("Willian", "willian@mail.com", "123456");
+    private final UserRequest invalid = new UserRequest(" Willian", "willian", "1");
+    private final TrimStringValidator trimStringValidator = new TrimStringValidator();
+    private ValidatorFactory factory;
+    private Validator validator;
+    private UserRequestValidator compiled;
+
+    @Setup
+    public void setUp() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+        compiled = new UserRequestValidator(validator);
+    }
+
+    @TearDown
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserRequest>> validRequest() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserRequest>> invalidRequest() {
+        return validator.validate(invalid);
+    }
+
+    @Benchmark
+    public List<String> compiledValidRequest() {
+        return compiled.validate(valid);
+    }
+
+    @Benchmark
+    public List<String> compiledInvalidRequest() {
+        return compiled.validate(invalid);
+    }
+
+    @Benchmark
+    public boolean trimString() {
+        return trimStringValidator.isValid(valid.name(), null);
+    }
+
+}
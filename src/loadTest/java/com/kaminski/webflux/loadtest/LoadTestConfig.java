@@ -0,0 +1,49 @@
+package com.kaminski.webflux.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Load test settings, read from {@code loadtest.*} system properties.
+ */
+record LoadTestConfig(
+        String baseUrl,
+        int rate,
+        Duration duration,
+        Duration warmup,
+        int seed,
+        int maxInFlight,
+        Map<Operation, Integer> mix,
+        Path reportDir
+) {
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                System.getProperty("loadtest.baseUrl"),
+                Integer.getInteger("loadtest.rate", 500),
+                Duration.ofSeconds(Long.getLong("loadtest.duration", 60L)),
+                Duration.ofSeconds(Long.getLong("loadtest.warmup", 15L)),
+                Integer.getInteger("loadtest.seed", 1_000),
+                Integer.getInteger("loadtest.maxInFlight", 2_000),
+                parseMix(System.getProperty("loadtest.mix", "create=10,get=60,patch=10,delete=5,list=15")),
+                Path.of(System.getProperty("loadtest.reportDir", "build/reports/loadtest"))
+        );
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        var weights = new EnumMap<Operation, Integer>(Operation.class);
+        for (var entry : mix.split(",")) {
+            var pair = entry.trim().split("=");
+            weights.put(Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(pair[1].trim()));
+        }
+        return weights;
+    }
+
+    enum Operation {
+        CREATE, GET, PATCH, DELETE, LIST
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.kaminski.webflux.loadtest;
+
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures time to first successful request for the standard fat-jar launch against the
+ * optimized one (Spring AOT initializers, optionally with an AppCDS archive). Each run is a
+ * fresh JVM; the clock starts just before the process is spawned and stops at the first 200
+ * from {@code GET /v1/users}. The CDS archive is produced by a training run of the optimized
+ * launch that exercises the main endpoints before shutting down.
+ */
+public final class StartupBenchmark {
+
+    private static final String MAIN_CLASS = "com.kaminski.webflux.WebfluxApiApplication";
+    private static final Duration READY_TIMEOUT = Duration.ofMinutes(2);
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    private final Path logDir;
+    private final String mongoUri;
+
+    private StartupBenchmark(Path logDir, String mongoUri) {
+        this.logDir = logDir;
+        this.mongoUri = mongoUri;
+    }
+
+    private record Launch(String name, List<String> command) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var bootJar = Path.of(required("startup.bootJar"));
+        var libDir = Path.of(required("startup.libDir"));
+        var archive = Path.of(required("startup.archive"));
+        var reportDir = Path.of(System.getProperty("startup.reportDir", "build/reports/startup"));
+        var runs = Integer.getInteger("startup.runs", 5);
+        Files.createDirectories(reportDir.resolve("logs"));
+
+        try (var mongod = Mongod.instance().start(Version.Main.V6_0)) {
+            var address = mongod.current().getServerAddress();
+            var benchmark = new StartupBenchmark(reportDir.resolve("logs"),
+                    "mongodb://" + address.getHost() + ":" + address.getPort() + "/startup");
+            var classpath = classpath(libDir);
+
+            benchmark.train(aot(classpath, "-XX:ArchiveClassesAtExit=" + archive), archive);
+
+            var launches = List.of(
+                    new Launch("standard", List.of("-jar", bootJar.toString())),
+                    new Launch("aot", aot(classpath)),
+                    new Launch("aot+cds", aot(classpath, "-XX:SharedArchiveFile=" + archive)));
+            var results = new ArrayList<String>();
+            for (var launch : launches) {
+                var samples = new ArrayList<Long>();
+                for (int run = 1; run <= runs; run++) {
+                    samples.add(benchmark.timeToFirstRequest(launch, run));
+                }
+                results.add(summary(launch.name(), samples));
+            }
+
+            try (var out = new PrintStream(Files.newOutputStream(reportDir.resolve("startup.txt")))) {
+                for (var line : results) {
+                    System.out.println(line);
+                    out.println(line);
+                }
+            }
+        }
+    }
+
+    private long timeToFirstRequest(final Launch launch, final int run) throws Exception {
+        var port = freePort();
+        var start = System.nanoTime();
+        var process = start(launch.command(), port, launch.name() + "-" + run);
+        try {
+            awaitFirstRequest(process, port);
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            stop(process);
+        }
+    }
+
+    private void train(final List<String> command, final Path archive) throws Exception {
+        Files.deleteIfExists(archive);
+        var port = freePort();
+        var process = start(command, port, "training");
+        try {
+            awaitFirstRequest(process, port);
+            var base = "http://localhost:" + port + "/v1/users";
+            send(HttpRequest.newBuilder(URI.create(base))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"name\":\"Training\",\"email\":\"training@mail.com\",\"password\":\"secret\"}"))
+                    .build());
+            send(HttpRequest.newBuilder(URI.create(base + "/by-email?email=training@mail.com")).build());
+            send(HttpRequest.newBuilder(URI.create(base + "/search?prefix=Tra")).build());
+            send(HttpRequest.newBuilder(URI.create(base + "/000000000000000000000000")).build());
+        } finally {
+            stop(process);
+        }
+        if (!Files.exists(archive)) {
+            throw new IllegalStateException("Training run did not produce a CDS archive at " + archive);
+        }
+    }
+
+    private Process start(final List<String> command, final int port, final String name) throws IOException {
+        var arguments = new ArrayList<String>();
+        arguments.add(java);
+        arguments.addAll(command);
+        arguments.add("--server.port=" + port);
+        arguments.add("--spring.data.mongodb.uri=" + mongoUri);
+        var log = logDir.resolve(name + ".log").toFile();
+        return new ProcessBuilder(arguments)
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+    }
+
+    private void awaitFirstRequest(final Process process, final int port) throws Exception {
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/users?limit=1")).build();
+        var deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue() + " before serving a request");
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // not listening yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("Application did not serve a request within " + READY_TIMEOUT);
+    }
+
+    private void send(final HttpRequest request) throws Exception {
+        client.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    /**
+     * SIGTERM rather than a forced kill, so the JVM exits normally and writes the dynamic archive.
+     */
+    private static void stop(final Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static List<String> aot(final String classpath, final String... jvmOptions) {
+        var command = new ArrayList<>(List.of(jvmOptions));
+        command.addAll(List.of("-Dspring.aot.enabled=true", "-cp", classpath, MAIN_CLASS));
+        return command;
+    }
+
+    /**
+     * CDS only archives classes loaded from jar files and requires the same classpath at dump
+     * and run time, hence an explicit, sorted list of jars instead of the nested fat jar.
+     */
+    private static String classpath(final Path libDir) throws IOException {
+        try (Stream<Path> jars = Files.list(libDir)) {
+            return jars.filter(path -> path.toString().endsWith(".jar"))
+                    .map(Path::toAbsolutePath)
+                    .map(Path::toString)
+                    .sorted()
+                    .collect(Collectors.joining(File.pathSeparator));
+        }
+    }
+
+    private static String summary(final String name, final List<Long> samples) {
+        var sorted = samples.stream().sorted().toList();
+        return String.format("%-8s runs=%d min=%dms median=%dms max=%dms",
+                name, sorted.size(), sorted.get(0), sorted.get(sorted.size() / 2), sorted.get(sorted.size() - 1));
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String required(final String name) {
+        var value = System.getProperty(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing system property " + name + ", run through the startupBenchmark task");
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,190 @@
+package com.kaminski.webflux.loadtest;
+
+import com.kaminski.webflux.WebfluxApiApplication;
+import com.kaminski.webflux.loadtest.LoadTestConfig.Operation;
+import com.kaminski.webflux.model.request.UserRequest;
+import com.kaminski.webflux.model.response.BatchItemResponse;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static com.kaminski.webflux.model.response.BatchItemResponse.Status.CREATED;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+
+/**
+ * Open-model load generator: requests are fired at a fixed arrival rate and latency is
+ * measured from each request's intended start, so a slow server cannot hide queueing
+ * delay (no coordinated omission). Without {@code loadtest.baseUrl} the application is
+ * booted in-process against an embedded mongod.
+ */
+public final class UserLoadTest {
+
+    private final LoadTestConfig config;
+    private final WebClient client;
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final ConcurrentLinkedQueue<String> deletable = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final Operation[] weighted;
+    private List<String> ids;
+
+    private UserLoadTest(LoadTestConfig config, String baseUrl) {
+        this.config = config;
+        this.client = WebClient.create(baseUrl);
+        for (var operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(3));
+            errors.put(operation, new AtomicLong());
+        }
+        this.weighted = config.mix().entrySet().stream()
+                .flatMap(entry -> Stream.generate(entry::getKey).limit(entry.getValue()))
+                .toArray(Operation[]::new);
+    }
+
+    public static void main(String[] args) throws IOException {
+        var config = LoadTestConfig.fromSystemProperties();
+        if (config.baseUrl() != null) {
+            new UserLoadTest(config, config.baseUrl()).run();
+            return;
+        }
+
+        try (var mongod = Mongod.instance().start(Version.Main.V6_0)) {
+            var address = mongod.current().getServerAddress();
+            var context = new SpringApplicationBuilder(WebfluxApiApplication.class)
+                    .run("--server.port=0",
+                            "--spring.data.mongodb.uri=mongodb://" + address.getHost() + ":" + address.getPort() + "/loadtest",
+                            "--webflux.users.rate-limit.enabled=" + System.getProperty("loadtest.rateLimit", "false"));
+            try {
+                var port = context.getEnvironment().getProperty("local.server.port");
+                new UserLoadTest(config, "http://localhost:" + port).run();
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private void run() throws IOException {
+        ids = seed(config.seed());
+        deletable.addAll(seed(config.seed()));
+
+        System.out.printf("Warming up for %ss at %d req/s%n", config.warmup().toSeconds(), config.rate());
+        drive(config.warmup());
+        histograms.values().forEach(Histogram::reset);
+        errors.values().forEach(counter -> counter.set(0));
+
+        System.out.printf("Measuring for %ss at %d req/s%n", config.duration().toSeconds(), config.rate());
+        drive(config.duration());
+        report();
+    }
+
+    private List<String> seed(int count) {
+        var requests = Flux.range(0, count).map(i -> newRequest());
+        return client.post().uri("/v1/users/batch")
+                .contentType(APPLICATION_NDJSON)
+                .accept(APPLICATION_NDJSON)
+                .body(requests, UserRequest.class)
+                .retrieve()
+                .bodyToFlux(BatchItemResponse.class)
+                .filter(item -> item.status() == CREATED)
+                .map(BatchItemResponse::id)
+                .collectList()
+                .block();
+    }
+
+    private void drive(Duration duration) {
+        var period = TimeUnit.SECONDS.toNanos(1) / config.rate();
+        var start = System.nanoTime();
+        Flux.interval(Duration.ofNanos(period))
+                .onBackpressureBuffer()
+                .take(duration.toNanos() / period)
+                .flatMap(tick -> execute(start + (tick + 1) * period), config.maxInFlight())
+                .blockLast();
+    }
+
+    private Mono<Void> execute(long intendedStart) {
+        var operation = weighted[ThreadLocalRandom.current().nextInt(weighted.length)];
+        var id = operation == Operation.DELETE ? deletable.poll() : randomId();
+        if (id == null) {
+            operation = Operation.GET;
+            id = randomId();
+        }
+        var recorded = operation;
+        return call(operation, id)
+                .doOnSuccess(ignored -> histograms.get(recorded)
+                        .recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart)))
+                .onErrorResume(e -> {
+                    errors.get(recorded).incrementAndGet();
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<?> call(Operation operation, String id) {
+        return switch (operation) {
+            case CREATE -> client.post().uri("/v1/users").bodyValue(newRequest())
+                    .retrieve().toBodilessEntity();
+            case GET -> client.get().uri("/v1/users/{id}", id)
+                    .retrieve().toBodilessEntity();
+            case PATCH -> client.patch().uri("/v1/users/{id}", id)
+                    .bodyValue(new UserRequest("patched-" + sequence.incrementAndGet(), null, null))
+                    .retrieve().toBodilessEntity();
+            case DELETE -> client.delete().uri("/v1/users/{id}", id)
+                    .retrieve().toBodilessEntity();
+            case LIST -> client.get().uri("/v1/users?limit=20")
+                    .retrieve().toBodilessEntity();
+        };
+    }
+
+    private String randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private UserRequest newRequest() {
+        var n = sequence.incrementAndGet();
+        return new UserRequest("load user " + n, "user-" + runId + "-" + n + "@load.test", "secret" + (n % 1000));
+    }
+
+    private void report() throws IOException {
+        Files.createDirectories(config.reportDir());
+        var seconds = (double) config.duration().toSeconds();
+        System.out.printf("%-8s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "op", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (var entry : histograms.entrySet()) {
+            var histogram = entry.getValue();
+            System.out.printf("%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    entry.getKey(), histogram.getTotalCount(), errors.get(entry.getKey()).get(),
+                    histogram.getTotalCount() / seconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+            var file = config.reportDir().resolve(entry.getKey().name().toLowerCase() + ".hgrm");
+            try (var out = new PrintStream(Files.newOutputStream(file))) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        System.out.println("Percentile distributions written to " + config.reportDir().toAbsolutePath());
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.kaminski.webflux.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.kaminski.webflux.config.UserProperties;
+import com.kaminski.webflux.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Users by id (handed out as copies) and e-mails recently found to be unregistered.
+ */
+@Component
+public class UserCache {
+
+    private final AsyncCache<String, User> cache;
+    private final Cache<String, Boolean> absentEmails;
+
+    public UserCache(final UserProperties properties, final MeterRegistry registry) {
+        var config = properties.getCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .buildAsync();
+        this.absentEmails = Caffeine.newBuilder()
+                .maximumSize(config.getAbsentEmailMaximumSize())
+                .expireAfterWrite(config.getAbsentEmailTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "users");
+        CaffeineCacheMetrics.monitor(registry, absentEmails, "absent-emails");
+    }
+
+    public Mono<User> get(final String id, final Function<String, Mono<User>> loader) {
+        return Mono.fromFuture(
+                () -> cache.get(id, (key, executor) -> loader.apply(key).toFuture()), true)
+                .map(UserCache::copy);
+    }
+
+    public void put(final String id, final User user) {
+        cache.put(id, CompletableFuture.completedFuture(copy(user)));
+    }
+
+    public void invalidate(final String id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public boolean isEmailAbsent(final String email) {
+        return absentEmails.getIfPresent(email) != null;
+    }
+
+    public void markEmailAbsent(final String email) {
+        absentEmails.put(email, Boolean.TRUE);
+    }
+
+    public void invalidateEmail(final String email) {
+        if (email != null) {
+            absentEmails.invalidate(email);
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    private static User copy(final User user) {
+        return user.toBuilder().build();
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.kaminski.webflux.codec;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spring's CBOR encoder only implements {@code encodeValue}. A {@link Mono} body is written as
+ * its single value and a {@link Flux} body as one array, as the JSON encoder does for
+ * non-streaming media types.
+ */
+public class CborValueEncoder extends Jackson2CborEncoder {
+
+    @Override
+    public Flux<DataBuffer> encode(final Publisher<?> input, final DataBufferFactory bufferFactory,
+                                   final ResolvableType elementType, final MimeType mimeType,
+                                   final Map<String, Object> hints) {
+        if (input instanceof Mono<?> mono) {
+            return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+        }
+        var listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+        return Flux.from(input).collectList()
+                .map(values -> encodeValue(values, bufferFactory, listType, mimeType, hints))
+                .flux();
+    }
+
+}
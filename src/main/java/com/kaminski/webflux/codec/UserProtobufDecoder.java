@@ -0,0 +1,54 @@
+package com.kaminski.webflux.codec;
+
+import com.kaminski.webflux.mapper.UserProtoMapper;
+import com.kaminski.webflux.model.proto.UserRequestMessage;
+import com.kaminski.webflux.model.request.UserRequest;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.codec.protobuf.ProtobufDecoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads {@link UserRequest} from a {@link UserRequestMessage}. Bean validation still runs on
+ * the resulting record, so protobuf callers get the same errors as JSON ones.
+ */
+public class UserProtobufDecoder implements Decoder<UserRequest> {
+
+    private static final ResolvableType MESSAGE_TYPE = ResolvableType.forClass(UserRequestMessage.class);
+
+    private final ProtobufDecoder delegate = new ProtobufDecoder();
+
+    @Override
+    public boolean canDecode(final ResolvableType elementType, final MimeType mimeType) {
+        return UserRequest.class == elementType.toClass() && delegate.canDecode(MESSAGE_TYPE, mimeType);
+    }
+
+    @Override
+    public Flux<UserRequest> decode(final Publisher<DataBuffer> input, final ResolvableType elementType,
+                                    final MimeType mimeType, final Map<String, Object> hints) {
+        return delegate.decode(input, MESSAGE_TYPE, mimeType, hints)
+                .cast(UserRequestMessage.class)
+                .map(UserProtoMapper::toRequest);
+    }
+
+    @Override
+    public Mono<UserRequest> decodeToMono(final Publisher<DataBuffer> input, final ResolvableType elementType,
+                                          final MimeType mimeType, final Map<String, Object> hints) {
+        return delegate.decodeToMono(input, MESSAGE_TYPE, mimeType, hints)
+                .cast(UserRequestMessage.class)
+                .map(UserProtoMapper::toRequest);
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes() {
+        return delegate.getDecodableMimeTypes();
+    }
+
+}
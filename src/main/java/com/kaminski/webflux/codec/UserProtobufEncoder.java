@@ -0,0 +1,84 @@
+package com.kaminski.webflux.codec;
+
+import com.google.protobuf.Message;
+import com.kaminski.webflux.controller.exceptions.StandardError;
+import com.kaminski.webflux.mapper.UserProtoMapper;
+import com.kaminski.webflux.model.response.PageResponse;
+import com.kaminski.webflux.model.response.UserResponse;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.http.codec.protobuf.ProtobufEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link UserResponse}, {@code PageResponse<UserResponse>} and {@link StandardError} as
+ * protobuf by converting them to their messages and delegating to Spring's {@link ProtobufEncoder}. A {@link Flux} of
+ * users is written with varint length-delimited framing, one message per element.
+ */
+public class UserProtobufEncoder implements HttpMessageEncoder<Object> {
+
+    private static final ResolvableType MESSAGE_TYPE = ResolvableType.forClass(Message.class);
+
+    private final ProtobufEncoder delegate = new ProtobufEncoder();
+
+    @Override
+    public boolean canEncode(final ResolvableType elementType, final MimeType mimeType) {
+        return supports(elementType) && delegate.canEncode(MESSAGE_TYPE, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(final Publisher<?> input, final DataBufferFactory bufferFactory,
+                                   final ResolvableType elementType, final MimeType mimeType,
+                                   final Map<String, Object> hints) {
+        Publisher<Message> messages = input instanceof Mono<?> mono
+                ? mono.map(UserProtobufEncoder::toMessage)
+                : Flux.from(input).map(UserProtobufEncoder::toMessage);
+        return delegate.encode(messages, bufferFactory, MESSAGE_TYPE, mimeType, hints);
+    }
+
+    @Override
+    public DataBuffer encodeValue(final Object value, final DataBufferFactory bufferFactory,
+                                  final ResolvableType valueType, final MimeType mimeType,
+                                  final Map<String, Object> hints) {
+        return delegate.encodeValue(toMessage(value), bufferFactory, MESSAGE_TYPE, mimeType, hints);
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return delegate.getEncodableMimeTypes();
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return delegate.getStreamingMediaTypes();
+    }
+
+    private static boolean supports(final ResolvableType type) {
+        var raw = type.toClass();
+        if (UserResponse.class == raw || StandardError.class.isAssignableFrom(raw)) {
+            return true;
+        }
+        return PageResponse.class == raw && UserResponse.class == type.getGeneric(0).toClass();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Message toMessage(final Object value) {
+        if (value instanceof UserResponse response) {
+            return UserProtoMapper.toMessage(response);
+        }
+        if (value instanceof StandardError error) {
+            return UserProtoMapper.toMessage(error);
+        }
+        return UserProtoMapper.toMessage((PageResponse<UserResponse>) value);
+    }
+
+}
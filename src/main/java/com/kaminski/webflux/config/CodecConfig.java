@@ -0,0 +1,60 @@
+package com.kaminski.webflux.config;
+
+import com.kaminski.webflux.codec.CborValueEncoder;
+import com.kaminski.webflux.codec.UserProtobufDecoder;
+import com.kaminski.webflux.codec.UserProtobufEncoder;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.web.reactive.accept.HeaderContentTypeResolver;
+import org.springframework.web.reactive.accept.RequestedContentTypeResolverBuilder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Binary formats for service-to-service callers, chosen through an explicit Accept /
+ * Content-Type. Smile is registered by Spring's default codecs once jackson-dataformat-smile
+ * is on the classpath; CBOR and the user protobuf messages are added here. Custom codecs are
+ * ordered ahead of Jackson JSON, so a wildcard Accept asks for JSON first.
+ */
+@Configuration
+public class CodecConfig implements WebFluxConfigurer {
+
+    private static final HeaderContentTypeResolver ACCEPT = new HeaderContentTypeResolver();
+
+    @Bean
+    public CodecCustomizer binaryCodecsCustomizer() {
+        return configurer -> {
+            var codecs = configurer.customCodecs();
+            codecs.register(new CborValueEncoder());
+            codecs.register(new Jackson2CborDecoder());
+            codecs.register(new UserProtobufEncoder());
+            codecs.register(new UserProtobufDecoder());
+        };
+    }
+
+    @Override
+    public void configureContentTypeResolver(final RequestedContentTypeResolverBuilder builder) {
+        builder.resolver(CodecConfig::jsonFirst);
+    }
+
+    private static List<MediaType> jsonFirst(final ServerWebExchange exchange) {
+        var requested = ACCEPT.resolveMediaTypes(exchange);
+        var mediaTypes = new ArrayList<MediaType>(requested.size() + 1);
+        for (MediaType mediaType : requested) {
+            if (mediaType.isWildcardType()) {
+                mediaTypes.add(APPLICATION_JSON.copyQualityValue(mediaType));
+            }
+            mediaTypes.add(mediaType);
+        }
+        return mediaTypes;
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.kaminski.webflux.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.ToLongFunction;
+
+@Configuration
+public class MetricsConfig {
+
+    private static final String SCHEDULER_METRICS = "reactor.schedulers.metrics";
+
+    private final Map<String, SchedulerExecutors> schedulers = new ConcurrentHashMap<>();
+
+    public MetricsConfig(MeterRegistry registry) {
+        Schedulers.addExecutorServiceDecorator(SCHEDULER_METRICS, (scheduler, executor) -> {
+            if (executor instanceof ThreadPoolExecutor pool) {
+                schedulers.computeIfAbsent(Scannable.from(scheduler).name(),
+                        name -> new SchedulerExecutors(registry, name)).add(pool);
+            }
+            return executor;
+        });
+    }
+
+    /**
+     * Enables Reactor Netty connection and event-loop metrics. The uri tag is collapsed on
+     * purpose: per-endpoint latency is already recorded by http.server.requests.
+     */
+    @Bean
+    public NettyServerCustomizer nettyMetricsCustomizer() {
+        return server -> server.metrics(true, uri -> "/");
+    }
+
+    @PreDestroy
+    public void removeSchedulerMetrics() {
+        Schedulers.removeExecutorServiceDecorator(SCHEDULER_METRICS);
+    }
+
+    /**
+     * The executors of one scheduler (one per parallel worker, one per live boundedElastic
+     * worker) reported as a single set of executor meters tagged by scheduler name.
+     * Terminated executors are dropped on read and their completed tasks kept in the counter.
+     */
+    static final class SchedulerExecutors {
+
+        private final Set<ThreadPoolExecutor> executors = ConcurrentHashMap.newKeySet();
+        private long retiredCompleted;
+
+        SchedulerExecutors(final MeterRegistry registry, final String scheduler) {
+            var tags = Tags.of("name", "reactor.scheduler", "scheduler", scheduler);
+            Gauge.builder("executor.workers", this, self -> self.live().size())
+                    .tags(tags).register(registry);
+            Gauge.builder("executor.pool.size", this, self -> self.sum(ThreadPoolExecutor::getPoolSize))
+                    .tags(tags).register(registry);
+            Gauge.builder("executor.active", this, self -> self.sum(ThreadPoolExecutor::getActiveCount))
+                    .tags(tags).register(registry);
+            Gauge.builder("executor.queued", this, self -> self.sum(executor -> executor.getQueue().size()))
+                    .tags(tags).register(registry);
+            FunctionCounter.builder("executor.completed", this, SchedulerExecutors::completed)
+                    .tags(tags).register(registry);
+        }
+
+        void add(final ThreadPoolExecutor executor) {
+            executors.add(executor);
+        }
+
+        private synchronized double completed() {
+            return sum(ThreadPoolExecutor::getCompletedTaskCount) + retiredCompleted;
+        }
+
+        private synchronized double sum(final ToLongFunction<ThreadPoolExecutor> metric) {
+            return live().stream().mapToLong(metric).sum();
+        }
+
+        private synchronized Set<ThreadPoolExecutor> live() {
+            for (var executor : executors) {
+                if (executor.isTerminated() && executors.remove(executor)) {
+                    retiredCompleted += executor.getCompletedTaskCount();
+                }
+            }
+            return executors;
+        }
+
+    }
+
+}
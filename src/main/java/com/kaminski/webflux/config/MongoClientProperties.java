@@ -0,0 +1,59 @@
+package com.kaminski.webflux.config;
+
+import com.mongodb.ReadPreference;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Driver settings applied on top of {@code spring.data.mongodb.uri}.
+ */
+@Data
+@ConfigurationProperties(prefix = "webflux.mongo")
+public class MongoClientProperties {
+
+    private Pool pool = new Pool();
+    private Timeouts timeouts = new Timeouts();
+    private List<String> compressors = new ArrayList<>();
+    private Reads reads = new Reads();
+
+    @Data
+    public static class Pool {
+        private int maxSize = 100;
+        private int minSize = 0;
+        private int maxConnecting = 2;
+        private Duration maxWaitTime = Duration.ofMinutes(2);
+        private Duration maxConnectionIdleTime = Duration.ZERO;
+    }
+
+    @Data
+    public static class Timeouts {
+        private Duration connect = Duration.ofSeconds(10);
+        private Duration read = Duration.ZERO;
+        private Duration serverSelection = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Read preference for findById and findAll; maxStaleness must be at least 90 seconds.
+     */
+    @Data
+    public static class Reads {
+        private String mode = "primary";
+        private Duration maxStaleness;
+
+        public ReadPreference toReadPreference() {
+            if ("primary".equalsIgnoreCase(mode)) {
+                return ReadPreference.primary();
+            }
+            if (maxStaleness == null) {
+                return ReadPreference.valueOf(mode);
+            }
+            return ReadPreference.valueOf(mode, List.of(), maxStaleness.toSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+}
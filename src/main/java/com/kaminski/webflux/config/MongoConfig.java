@@ -0,0 +1,63 @@
+package com.kaminski.webflux.config;
+
+import com.mongodb.MongoCompressor;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoClientSettingsCustomizer(final MongoClientProperties properties) {
+        var pool = properties.getPool();
+        var timeouts = properties.getTimeouts();
+        return builder -> builder
+                .applyToConnectionPoolSettings(settings -> settings
+                        .maxSize(pool.getMaxSize())
+                        .minSize(pool.getMinSize())
+                        .maxConnecting(pool.getMaxConnecting())
+                        .maxWaitTime(pool.getMaxWaitTime().toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(pool.getMaxConnectionIdleTime().toMillis(), TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(settings -> settings
+                        .connectTimeout((int) timeouts.getConnect().toMillis(), TimeUnit.MILLISECONDS)
+                        .readTimeout((int) timeouts.getRead().toMillis(), TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(settings -> settings
+                        .serverSelectionTimeout(timeouts.getServerSelection().toMillis(), TimeUnit.MILLISECONDS))
+                .compressorList(properties.getCompressors().stream()
+                        .map(MongoConfig::compressor)
+                        .toList());
+    }
+
+    @Bean
+    @Primary
+    public ReactiveMongoTemplate reactiveMongoTemplate(final ReactiveMongoDatabaseFactory factory,
+                                                       final MongoConverter converter) {
+        return new ReactiveMongoTemplate(factory, converter);
+    }
+
+    @Bean
+    public ReactiveMongoTemplate readMongoTemplate(final ReactiveMongoDatabaseFactory factory,
+                                                   final MongoConverter converter,
+                                                   final MongoClientProperties properties) {
+        var template = new ReactiveMongoTemplate(factory, converter);
+        template.setReadPreference(properties.getReads().toReadPreference());
+        return template;
+    }
+
+    private static MongoCompressor compressor(final String name) {
+        return switch (name.toLowerCase()) {
+            case "zstd" -> MongoCompressor.createZstdCompressor();
+            case "snappy" -> MongoCompressor.createSnappyCompressor();
+            case "zlib" -> MongoCompressor.createZlibCompressor();
+            default -> throw new IllegalArgumentException("Unknown Mongo compressor: " + name);
+        };
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.kaminski.webflux.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "webflux.users")
+public class UserProperties {
+
+    private Page page = new Page();
+    private Export export = new Export();
+    private Batch batch = new Batch();
+    private Cache cache = new Cache();
+    private Password password = new Password();
+    private Delete delete = new Delete();
+    private Loader loader = new Loader();
+    private Lookup lookup = new Lookup();
+    private Changes changes = new Changes();
+    private RateLimit rateLimit = new RateLimit();
+    private Stats stats = new Stats();
+    private Timeouts timeouts = new Timeouts();
+    private Hedge hedge = new Hedge();
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    @Data
+    public static class Page {
+        private int defaultLimit = 20;
+        private int maxLimit = 100;
+    }
+
+    @Data
+    public static class Export {
+        private int batchSize = 500;
+        private int limitRate = 256;
+    }
+
+    @Data
+    public static class Batch {
+        private int size = 1000;
+        private Duration window = Duration.ofMillis(200);
+        private int concurrency = 2;
+    }
+
+    @Data
+    public static class Cache {
+        private long maximumSize = 100_000;
+        private Duration ttl = Duration.ofMinutes(5);
+        private long absentEmailMaximumSize = 100_000;
+        private Duration absentEmailTtl = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Password {
+        private int strength = 10;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int queueSize = 1000;
+    }
+
+    @Data
+    public static class Delete {
+        private int maxIds = 1000;
+    }
+
+    @Data
+    public static class Loader {
+        private boolean enabled = true;
+        private int maxSize = 100;
+        private Duration maxDelay = Duration.ofMillis(1);
+        private int concurrency = 16;
+    }
+
+    @Data
+    public static class Lookup {
+        private int maxIds = 100;
+    }
+
+    @Data
+    public static class Changes {
+        private int bufferSize = 256;
+        private Overflow overflow = Overflow.DISCONNECT;
+
+        public enum Overflow {
+            DISCONNECT, DROP_OLDEST, DROP_LATEST
+        }
+    }
+
+    @Data
+    public static class RateLimit {
+        private boolean enabled = false;
+        private String pathPrefix = "/v1/users";
+        private String apiKeyHeader = "X-API-Key";
+        private List<String> apiKeys = List.of();
+        private double rate = 100;
+        private int burst = 200;
+        private long maxClients = 100_000;
+        private Duration clientTtl = Duration.ofMinutes(10);
+        private int initialConcurrency = 64;
+        private int minConcurrency = 8;
+        private int maxConcurrency = 512;
+        private Duration latencyThreshold = Duration.ofMillis(250);
+        private double backoffRatio = 0.9;
+        private List<String> streamingPaths = List.of("/v1/users/changes", "/v1/users/export");
+    }
+
+    @Data
+    public static class Stats {
+        private int maxDomains = 50;
+        private boolean reconcileEnabled = true;
+        private Duration reconcileDelay = Duration.ofSeconds(30);
+        private Duration reconcileInterval = Duration.ofMinutes(15);
+        private int reconcileBatchSize = 500;
+        private Duration flushInterval = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Timeouts {
+        private Duration defaultTimeout = Duration.ofSeconds(2);
+        private Map<String, Duration> operations = new HashMap<>(Map.of("stream", Duration.ZERO));
+        private Duration grace = Duration.ofMillis(250);
+    }
+
+    @Data
+    public static class Hedge {
+        private boolean enabled = false;
+        private List<String> operations = List.of("findById", "findAllById");
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(5);
+        private Duration initialDelay = Duration.ofMillis(50);
+        private double budget = 0.1;
+        private int maxBurst = 10;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        private float failureRateThreshold = 50;
+        private int slidingWindowSize = 100;
+        private int minimumNumberOfCalls = 20;
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+        private int permittedCallsInHalfOpenState = 5;
+    }
+
+}
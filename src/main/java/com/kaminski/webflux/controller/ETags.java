@@ -0,0 +1,37 @@
+package com.kaminski.webflux.controller;
+
+import com.kaminski.webflux.entity.User;
+import com.kaminski.webflux.service.exeception.PreconditionFailedException;
+
+/**
+ * Strong ETags derived from the user's {@code @Version}.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String of(final User user) {
+        return user.getVersion() == null ? null : "\"" + user.getVersion() + "\"";
+    }
+
+    /**
+     * Parses an {@code If-Match} header into the expected version, or {@code null} when the
+     * header is absent or {@code *}.
+     */
+    public static Long version(final String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        var value = ifMatch.trim();
+        if (value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+            throw new PreconditionFailedException("Invalid If-Match: " + ifMatch);
+        }
+        try {
+            return Long.parseLong(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("Invalid If-Match: " + ifMatch);
+        }
+    }
+
+}
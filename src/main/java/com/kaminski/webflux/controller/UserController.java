@@ -1,28 +1,89 @@
 package com.kaminski.webflux.controller;
 
+import com.kaminski.webflux.model.request.LookupRequest;
 import com.kaminski.webflux.model.request.UserRequest;
+import com.kaminski.webflux.model.response.BatchItemResponse;
+import com.kaminski.webflux.model.response.DeleteResponse;
+import com.kaminski.webflux.model.response.LookupItemResponse;
+import com.kaminski.webflux.model.response.PageResponse;
+import com.kaminski.webflux.model.response.UserChangeResponse;
 import com.kaminski.webflux.model.response.UserResponse;
+import com.kaminski.webflux.model.response.UserStatsResponse;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
+import static org.springframework.http.HttpHeaders.IF_MATCH;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
+
 public interface UserController {
 
+    String LAST_EVENT_ID = "Last-Event-ID";
+    String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+
     @PostMapping
     ResponseEntity<Mono<Void>> save(@Valid @RequestBody UserRequest request);
 
+    @PostMapping(value = "/batch", consumes = APPLICATION_NDJSON_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    ResponseEntity<Flux<BatchItemResponse>> saveAll(@RequestBody Flux<UserRequest> requests);
+
+    @PostMapping(value = "/lookup", produces = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    ResponseEntity<Flux<LookupItemResponse>> lookup(@Valid @RequestBody LookupRequest request);
+
+    @GetMapping(value = "/by-email")
+    ResponseEntity<Mono<UserResponse>> findByEmail(@RequestParam String email);
+
+    @RequestMapping(value = "/by-email", method = RequestMethod.HEAD)
+    Mono<ResponseEntity<Void>> existsByEmail(@RequestParam String email);
+
     @GetMapping(value = "/{id}")
-    ResponseEntity<Mono<UserResponse>> find(@PathVariable String id);
+    Mono<ResponseEntity<UserResponse>> find(
+            @PathVariable String id,
+            @RequestParam(required = false) String fields);
 
     @GetMapping
-    ResponseEntity<Flux<UserResponse>> findAll();
+    ResponseEntity<Mono<PageResponse<UserResponse>>> findAll(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields);
+
+    @GetMapping(value = "/search")
+    ResponseEntity<Mono<PageResponse<UserResponse>>> search(
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) String text,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit);
+
+    @GetMapping(value = "/stats")
+    ResponseEntity<Mono<UserStatsResponse>> stats();
+
+    @GetMapping(value = "/export", produces = {APPLICATION_NDJSON_VALUE, TEXT_EVENT_STREAM_VALUE, APPLICATION_PROTOBUF_VALUE})
+    ResponseEntity<Flux<UserResponse>> export(@RequestParam(required = false) String fields);
+
+    @GetMapping(value = "/changes", produces = TEXT_EVENT_STREAM_VALUE)
+    ResponseEntity<Flux<ServerSentEvent<UserChangeResponse>>> changes(
+            @RequestParam(required = false) String resumeAfter,
+            @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId);
 
     @PatchMapping(value = "/{id}")
-    ResponseEntity<Mono<UserResponse>> update(@PathVariable String id, @RequestBody UserRequest request);
+    Mono<ResponseEntity<UserResponse>> update(
+            @PathVariable String id,
+            @RequestBody UserRequest request,
+            @RequestHeader(value = IF_MATCH, required = false) String ifMatch);
 
     @DeleteMapping(value = "/{id}")
-    ResponseEntity<Mono<Void>> delete(@PathVariable String id);
+    ResponseEntity<Mono<Void>> delete(
+            @PathVariable String id,
+            @RequestHeader(value = IF_MATCH, required = false) String ifMatch);
+
+    @DeleteMapping
+    ResponseEntity<Mono<DeleteResponse>> deleteAll(@RequestParam List<String> ids);
 
 }
\ No newline at end of file
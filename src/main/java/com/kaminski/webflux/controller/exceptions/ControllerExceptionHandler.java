@@ -1,7 +1,17 @@
 package com.kaminski.webflux.controller.exceptions;
 
+import com.kaminski.webflux.service.exeception.DatabaseUnavailableException;
+import com.kaminski.webflux.service.exeception.DuplicateKeyMessage;
+import com.kaminski.webflux.service.exeception.InvalidCursorException;
+import com.kaminski.webflux.service.exeception.InvalidFieldsException;
+import com.kaminski.webflux.service.exeception.LimitExceededException;
 import com.kaminski.webflux.service.exeception.ObjectNotFoundException;
+import com.kaminski.webflux.service.exeception.PreconditionFailedException;
+import com.kaminski.webflux.service.exeception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.validation.FieldError;
@@ -10,23 +20,57 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.support.WebExchangeBindException;
 import reactor.core.publisher.Mono;
 
-import static java.time.LocalDateTime.now;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 @ControllerAdvice
 public class ControllerExceptionHandler {
 
+    private static final String METRIC = "user.errors";
+    private static final Integer NOT_FOUND_STATUS = NOT_FOUND.value();
+    private static final String NOT_FOUND_REASON = NOT_FOUND.getReasonPhrase();
+
+    private volatile Timestamp timestamp = new Timestamp(0, null);
+
+    private final Counter duplicateKeyErrors;
+    private final Counter validationErrors;
+    private final Counter notFoundErrors;
+    private final Counter invalidCursorErrors;
+    private final Counter invalidFieldsErrors;
+    private final Counter unavailableErrors;
+    private final Counter preconditionErrors;
+    private final Counter limitExceededErrors;
+    private final Counter circuitOpenErrors;
+
+    public ControllerExceptionHandler(MeterRegistry registry) {
+        this.duplicateKeyErrors = registry.counter(METRIC, "type", "duplicate_key");
+        this.validationErrors = registry.counter(METRIC, "type", "validation");
+        this.notFoundErrors = registry.counter(METRIC, "type", "not_found");
+        this.invalidCursorErrors = registry.counter(METRIC, "type", "invalid_cursor");
+        this.invalidFieldsErrors = registry.counter(METRIC, "type", "invalid_fields");
+        this.unavailableErrors = registry.counter(METRIC, "type", "unavailable");
+        this.preconditionErrors = registry.counter(METRIC, "type", "precondition_failed");
+        this.limitExceededErrors = registry.counter(METRIC, "type", "limit_exceeded");
+        this.circuitOpenErrors = registry.counter(METRIC, "type", "circuit_open");
+    }
+
     @ExceptionHandler(DuplicateKeyException.class)
     public ResponseEntity<Mono<StandardError>> duplicateKeyException(
             DuplicateKeyException exception, ServerHttpRequest request){
+        duplicateKeyErrors.increment();
         return ResponseEntity.status(BAD_REQUEST).body(
                 Mono.just(
                         StandardError.builder()
                         .timestamp(now())
                         .status(BAD_REQUEST.value())
                         .error(BAD_REQUEST.getReasonPhrase())
-                        .message(verifyDupKey(exception.getMessage()))
+                        .message(DuplicateKeyMessage.resolve(exception.getMessage()))
                         .path(request.getPath().toString())
                         .build()
                 )
@@ -36,6 +80,7 @@ public class ControllerExceptionHandler {
     @ExceptionHandler(WebExchangeBindException.class)
     public ResponseEntity<Mono<ValidationError>> validationInputFieldsErrors(
             WebExchangeBindException exception, ServerHttpRequest request){
+        validationErrors.increment();
         ValidationError error = new ValidationError(
                 now(), request.getPath().toString(), BAD_REQUEST.value(),
                 "Validation error", "Error on validation attributes"
@@ -52,12 +97,112 @@ public class ControllerExceptionHandler {
     @ExceptionHandler(ObjectNotFoundException.class)
     public ResponseEntity<Mono<StandardError>> objectNotFoundException(
             ObjectNotFoundException exception, ServerHttpRequest request){
+        notFoundErrors.increment();
         return ResponseEntity.status(NOT_FOUND).body(
+                Mono.just(new StandardError(
+                        now(), request.getPath().value(), NOT_FOUND_STATUS,
+                        NOT_FOUND_REASON, exception.getMessage()
+                ))
+        );
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Mono<StandardError>> invalidCursorException(
+            InvalidCursorException exception, ServerHttpRequest request){
+        invalidCursorErrors.increment();
+        return ResponseEntity.status(BAD_REQUEST).body(
+                Mono.just(
+                        StandardError.builder()
+                                .timestamp(now())
+                                .status(BAD_REQUEST.value())
+                                .error(BAD_REQUEST.getReasonPhrase())
+                                .message(exception.getMessage())
+                                .path(request.getPath().toString())
+                                .build()
+                )
+        );
+    }
+
+    @ExceptionHandler(InvalidFieldsException.class)
+    public ResponseEntity<Mono<StandardError>> invalidFieldsException(
+            InvalidFieldsException exception, ServerHttpRequest request){
+        invalidFieldsErrors.increment();
+        return ResponseEntity.status(BAD_REQUEST).body(
+                Mono.just(
+                        StandardError.builder()
+                                .timestamp(now())
+                                .status(BAD_REQUEST.value())
+                                .error(BAD_REQUEST.getReasonPhrase())
+                                .message(exception.getMessage())
+                                .path(request.getPath().toString())
+                                .build()
+                )
+        );
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<Mono<StandardError>> serviceUnavailableException(
+            ServiceUnavailableException exception, ServerHttpRequest request){
+        unavailableErrors.increment();
+        return ResponseEntity.status(SERVICE_UNAVAILABLE).body(
+                Mono.just(
+                        StandardError.builder()
+                                .timestamp(now())
+                                .status(SERVICE_UNAVAILABLE.value())
+                                .error(SERVICE_UNAVAILABLE.getReasonPhrase())
+                                .message(exception.getMessage())
+                                .path(request.getPath().toString())
+                                .build()
+                )
+        );
+    }
+
+    @ExceptionHandler(DatabaseUnavailableException.class)
+    public ResponseEntity<Mono<StandardError>> databaseUnavailableException(
+            DatabaseUnavailableException exception, ServerHttpRequest request){
+        circuitOpenErrors.increment();
+        return ResponseEntity.status(SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, exception.getRetryAfter().toSeconds())))
+                .body(
+                Mono.just(
+                        StandardError.builder()
+                                .timestamp(now())
+                                .status(SERVICE_UNAVAILABLE.value())
+                                .error(SERVICE_UNAVAILABLE.getReasonPhrase())
+                                .message(exception.getMessage())
+                                .path(request.getPath().toString())
+                                .build()
+                )
+        );
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Mono<StandardError>> preconditionFailedException(
+            PreconditionFailedException exception, ServerHttpRequest request){
+        preconditionErrors.increment();
+        return ResponseEntity.status(PRECONDITION_FAILED).body(
+                Mono.just(
+                        StandardError.builder()
+                                .timestamp(now())
+                                .status(PRECONDITION_FAILED.value())
+                                .error(PRECONDITION_FAILED.getReasonPhrase())
+                                .message(exception.getMessage())
+                                .path(request.getPath().toString())
+                                .build()
+                )
+        );
+    }
+
+    @ExceptionHandler(LimitExceededException.class)
+    public ResponseEntity<Mono<StandardError>> limitExceededException(
+            LimitExceededException exception, ServerHttpRequest request){
+        limitExceededErrors.increment();
+        return ResponseEntity.status(BAD_REQUEST).body(
                 Mono.just(
                         StandardError.builder()
                                 .timestamp(now())
-                                .status(NOT_FOUND.value())
-                                .error(NOT_FOUND.getReasonPhrase())
+                                .status(BAD_REQUEST.value())
+                                .error(BAD_REQUEST.getReasonPhrase())
                                 .message(exception.getMessage())
                                 .path(request.getPath().toString())
                                 .build()
@@ -65,11 +210,21 @@ public class ControllerExceptionHandler {
         );
     }
 
-    private String verifyDupKey(String message) {
-        if (message.contains("email dup key")) {
-            return "E-mail already registered";
+    /**
+     * Error timestamps have millisecond resolution, so one instance is shared by every error
+     * raised within the same millisecond instead of allocating a new one per response.
+     */
+    private LocalDateTime now() {
+        var millis = System.currentTimeMillis();
+        var current = timestamp;
+        if (current.millis() != millis) {
+            current = new Timestamp(millis, LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()));
+            timestamp = current;
         }
-        return "Dup key exception";
+        return current.value();
+    }
+
+    private record Timestamp(long millis, LocalDateTime value) {
     }
 
 }
\ No newline at end of file
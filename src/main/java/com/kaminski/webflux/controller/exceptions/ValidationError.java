@@ -26,7 +26,7 @@ public class ValidationError extends StandardError implements Serializable {
 
     @Getter
     @AllArgsConstructor
-    private static final class FieldError {
+    public static final class FieldError {
         private String fieldName;
         private String message;
     }
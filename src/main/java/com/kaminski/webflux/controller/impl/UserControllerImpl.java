@@ -1,25 +1,57 @@
 package com.kaminski.webflux.controller.impl;
 
+import com.kaminski.webflux.controller.ETags;
 import com.kaminski.webflux.controller.UserController;
+import com.kaminski.webflux.entity.User;
 import com.kaminski.webflux.mapper.UserMapper;
+import com.kaminski.webflux.model.request.LookupRequest;
 import com.kaminski.webflux.model.request.UserRequest;
+import com.kaminski.webflux.model.response.BatchItemResponse;
+import com.kaminski.webflux.model.response.DeleteResponse;
+import com.kaminski.webflux.model.response.LookupItemResponse;
+import com.kaminski.webflux.model.response.PageResponse;
+import com.kaminski.webflux.model.response.UserChangeResponse;
 import com.kaminski.webflux.model.response.UserResponse;
+import com.kaminski.webflux.model.response.UserStatsResponse;
+import com.kaminski.webflux.service.UserChange;
+import com.kaminski.webflux.service.UserChangeService;
 import com.kaminski.webflux.service.UserService;
+import com.kaminski.webflux.service.UserStatsService;
+import com.kaminski.webflux.validator.UserRequestValidator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequestMapping(value = "/v1/users")
 @RequiredArgsConstructor
 public class UserControllerImpl implements UserController {
 
     private final UserService service;
+    private final UserChangeService changeService;
+    private final UserStatsService statsService;
     private final UserMapper mapper;
+    private final UserRequestValidator userRequestValidator;
+
+    /**
+     * Swaps reflective bean validation for the specialized validator on UserRequest bodies;
+     * the binding result, and so the WebExchangeBindException, keeps the same shape.
+     */
+    @InitBinder("userRequest")
+    public void initUserRequestBinder(final WebDataBinder binder) {
+        binder.replaceValidators(userRequestValidator);
+    }
 
     @Override
     public ResponseEntity<Mono<Void>> save(final UserRequest request) {
@@ -28,27 +60,115 @@ public class UserControllerImpl implements UserController {
     }
 
     @Override
-    public ResponseEntity<Mono<UserResponse>> find(String id) {
-        var response = service.findById(id).map(mapper::toResponse);
+    public ResponseEntity<Flux<BatchItemResponse>> saveAll(final Flux<UserRequest> requests) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(service.saveAll(requests));
+    }
+
+    @Override
+    public ResponseEntity<Flux<LookupItemResponse>> lookup(final LookupRequest request) {
+        var ids = request.ids();
+        var response = service.findAllById(ids)
+                .flatMapIterable(users -> ids.stream()
+                        .map(id -> toLookupItem(id, users.get(id)))
+                        .toList());
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
     @Override
-    public ResponseEntity<Flux<UserResponse>> findAll() {
-        var response = service.findAll().map(mapper::toResponse);
+    public ResponseEntity<Mono<UserResponse>> findByEmail(String email) {
+        var response = service.findByEmail(email).map(mapper::toResponse);
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
     @Override
-    public ResponseEntity<Mono<UserResponse>> update(String id, UserRequest request) {
-        var response = service.update(id, request).map(mapper::toResponse);
+    public Mono<ResponseEntity<Void>> existsByEmail(String email) {
+        return service.existsByEmail(email)
+                .map(exists -> ResponseEntity.status(exists ? HttpStatus.OK : HttpStatus.NOT_FOUND).<Void>build());
+    }
+
+    @Override
+    public Mono<ResponseEntity<UserResponse>> find(String id, String fields) {
+        return service.findById(id, fields).map(this::toResponseEntity);
+    }
+
+    @Override
+    public ResponseEntity<Mono<PageResponse<UserResponse>>> findAll(String after, Integer limit, String fields) {
+        var response = service.findAll(after, limit, fields)
+                .map(page -> page.map(mapper::toResponse));
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
     @Override
-    public ResponseEntity<Mono<Void>> delete(String id) {
+    public ResponseEntity<Mono<PageResponse<UserResponse>>> search(String prefix, String text, String after, Integer limit) {
+        Mono<PageResponse<User>> page;
+        if (StringUtils.hasText(text)) {
+            page = service.searchByText(text, limit);
+        } else if (StringUtils.hasText(prefix)) {
+            page = service.searchByPrefix(prefix, after, limit);
+        } else {
+            page = Mono.error(new ServerWebInputException("Either prefix or text is required"));
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(page.map(result -> result.map(mapper::toResponse)));
+    }
+
+    @Override
+    public ResponseEntity<Mono<UserStatsResponse>> stats() {
+        return ResponseEntity.status(HttpStatus.OK).body(statsService.stats());
+    }
+
+    @Override
+    public ResponseEntity<Flux<UserResponse>> export(String fields) {
+        var response = service.export(fields).map(mapper::toResponse);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @Override
+    public ResponseEntity<Flux<ServerSentEvent<UserChangeResponse>>> changes(String resumeAfter, String lastEventId) {
+        var response = changeService.changes(lastEventId != null ? lastEventId : resumeAfter)
+                .map(this::toServerSentEvent);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @Override
+    public Mono<ResponseEntity<UserResponse>> update(String id, UserRequest request, String ifMatch) {
+        return Mono.defer(() -> service.update(id, request, ETags.version(ifMatch)))
+                .map(this::toResponseEntity);
+    }
+
+    @Override
+    public ResponseEntity<Mono<Void>> delete(String id, String ifMatch) {
         return ResponseEntity.status(HttpStatus.OK)
-                .body(service.delete(id).then());
+                .body(Mono.defer(() -> service.delete(id, ETags.version(ifMatch))));
+    }
+
+    @Override
+    public ResponseEntity<Mono<DeleteResponse>> deleteAll(List<String> ids) {
+        return ResponseEntity.status(HttpStatus.OK).body(service.deleteAll(ids));
+    }
+
+    private ServerSentEvent<UserChangeResponse> toServerSentEvent(final UserChange change) {
+        var user = change.user() == null ? null : mapper.toResponse(change.user());
+        return ServerSentEvent.builder(new UserChangeResponse(change.type(), change.id(), user))
+                .id(change.resumeToken())
+                .event(change.type())
+                .build();
+    }
+
+    private LookupItemResponse toLookupItem(final String id, final User user) {
+        if (user == null) {
+            return new LookupItemResponse(id, false, null);
+        }
+        return new LookupItemResponse(id, true, mapper.toResponse(user));
+    }
+
+    private ResponseEntity<UserResponse> toResponseEntity(final User user) {
+        var builder = ResponseEntity.status(HttpStatus.OK);
+        var eTag = ETags.of(user);
+        if (eTag != null) {
+            builder.eTag(eTag);
+        }
+        return builder.body(mapper.toResponse(user));
     }
 
 }
\ No newline at end of file
@@ -3,20 +3,29 @@ package com.kaminski.webflux.entity;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @Document
+@CompoundIndex(name = "name_ci", def = "{'name': 1, '_id': 1}", collation = "{'locale': 'en', 'strength': 2}")
 public class User {
 
     @Id
     private String id;
+
+    @TextIndexed
     private String name;
 
     @Indexed(unique = true)
     private String email;
     private String password;
 
+    @Version
+    private Long version;
+
 }
\ No newline at end of file
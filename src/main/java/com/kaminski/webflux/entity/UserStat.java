@@ -0,0 +1,34 @@
+package com.kaminski.webflux.entity;
+
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.IndexDirection;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * One counter of the users summary: the total (id {@value #TOTAL_ID}) or the users of one
+ * email domain (id {@code domain:<domain>}).
+ */
+@Data
+@Builder
+@Document(collection = "user_stats")
+public class UserStat {
+
+    public static final String TOTAL_ID = "total";
+    public static final String DOMAIN_PREFIX = "domain:";
+
+    @Id
+    private String id;
+
+    private String domain;
+
+    @Indexed(direction = IndexDirection.DESCENDING)
+    private long count;
+
+    private Instant reconciledAt;
+
+}
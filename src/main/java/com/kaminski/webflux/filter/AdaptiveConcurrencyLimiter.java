@@ -0,0 +1,65 @@
+package com.kaminski.webflux.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AIMD concurrency limit driven by response latency.
+ */
+final class AdaptiveConcurrencyLimiter {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limit;
+    private final double minLimit;
+    private final double maxLimit;
+    private final long latencyThreshold;
+    private final double backoffRatio;
+
+    AdaptiveConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit,
+                               final long latencyThresholdNanos, final double backoffRatio) {
+        this.limit = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThreshold = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+    }
+
+    boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > limit()) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the permit; only sampled (completed) requests adjust the limit.
+     */
+    void release(final long latencyNanos, final boolean sample) {
+        var used = inFlight.getAndDecrement();
+        if (!sample) {
+            return;
+        }
+        limit.getAndUpdate(bits -> {
+            var current = Double.longBitsToDouble(bits);
+            double next;
+            if (latencyNanos > latencyThreshold) {
+                next = Math.max(minLimit, current * backoffRatio);
+            } else if (used * 2 >= current) {
+                next = Math.min(maxLimit, current + 1 / current);
+            } else {
+                return bits;
+            }
+            return Double.doubleToRawLongBits(next);
+        });
+    }
+
+    int limit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.kaminski.webflux.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kaminski.webflux.config.UserProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * Per-client token buckets (429) and a global adaptive concurrency limit (503). Runs right
+ * after the observation filter (HIGHEST_PRECEDENCE + 1), so rejections show up in
+ * http.server.requests.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class RateLimitFilter implements WebFilter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final UserProperties.RateLimit config;
+    private final Set<String> apiKeys;
+    private final Cache<String, TokenBucket> buckets;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Counter rateLimited;
+    private final Counter overloaded;
+    private final String overloadRetryAfter;
+
+    public RateLimitFilter(final UserProperties properties, final MeterRegistry registry) {
+        this.config = properties.getRateLimit();
+        this.apiKeys = Set.copyOf(config.getApiKeys());
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(config.getMaxClients())
+                .expireAfterAccess(config.getClientTtl())
+                .build();
+        this.limiter = new AdaptiveConcurrencyLimiter(config.getInitialConcurrency(), config.getMinConcurrency(),
+                config.getMaxConcurrency(), config.getLatencyThreshold().toNanos(), config.getBackoffRatio());
+        this.rateLimited = registry.counter("user.requests.rejected", "reason", "rate_limited");
+        this.overloaded = registry.counter("user.requests.rejected", "reason", "overloaded");
+        this.overloadRetryAfter = String.valueOf(Math.max(1, config.getLatencyThreshold().toSeconds()));
+        Gauge.builder("user.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::limit).register(registry);
+        Gauge.builder("user.concurrency.in_flight", limiter, AdaptiveConcurrencyLimiter::inFlight).register(registry);
+    }
+
+    @Override
+    public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+        var path = exchange.getRequest().getPath().value();
+        if (!config.isEnabled() || !path.startsWith(config.getPathPrefix())) {
+            return chain.filter(exchange);
+        }
+
+        var now = System.nanoTime();
+        var wait = buckets.get(clientKey(exchange), key -> new TokenBucket(config.getRate(), config.getBurst(), now))
+                .tryAcquire(now);
+        if (wait > 0) {
+            rateLimited.increment();
+            return reject(exchange, TOO_MANY_REQUESTS, String.valueOf(ceilSeconds(wait)));
+        }
+
+        if (config.getStreamingPaths().contains(path)) {
+            return chain.filter(exchange);
+        }
+        if (!limiter.tryAcquire()) {
+            overloaded.increment();
+            return reject(exchange, SERVICE_UNAVAILABLE, overloadRetryAfter);
+        }
+        return chain.filter(exchange)
+                .doFinally(signal -> limiter.release(System.nanoTime() - now, signal != SignalType.CANCEL));
+    }
+
+    private String clientKey(final ServerWebExchange exchange) {
+        var apiKey = exchange.getRequest().getHeaders().getFirst(config.getApiKeyHeader());
+        if (apiKey != null && apiKeys.contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        var address = exchange.getRequest().getRemoteAddress();
+        return address == null || address.getAddress() == null
+                ? "ip:unknown" : "ip:" + address.getAddress().getHostAddress();
+    }
+
+    private static long ceilSeconds(final long nanos) {
+        return Math.max(1, (nanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+    }
+
+    private static Mono<Void> reject(final ServerWebExchange exchange, final HttpStatus status, final String retryAfter) {
+        var response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+        return response.setComplete();
+    }
+
+}
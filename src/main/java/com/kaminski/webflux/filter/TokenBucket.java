@@ -0,0 +1,37 @@
+package com.kaminski.webflux.filter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket (GCRA): the state is one theoretical arrival time updated with CAS.
+ */
+final class TokenBucket {
+
+    private final long interval;
+    private final long tolerance;
+    private final AtomicLong arrival;
+
+    TokenBucket(final double ratePerSecond, final int burst, final long now) {
+        this.interval = Math.max(1L, (long) (1_000_000_000L / ratePerSecond));
+        this.tolerance = interval * Math.max(1, burst);
+        this.arrival = new AtomicLong(now);
+    }
+
+    /**
+     * Takes one token, returning 0 on success or the nanoseconds until one is available.
+     */
+    long tryAcquire(final long now) {
+        while (true) {
+            var current = arrival.get();
+            var next = Math.max(current, now) + interval;
+            var wait = next - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+}
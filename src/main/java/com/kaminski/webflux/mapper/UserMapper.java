@@ -18,9 +18,11 @@ import static org.mapstruct.NullValueCheckStrategy.ALWAYS;
 public interface UserMapper {
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
     User toEntity(final UserRequest request);
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
     User toEntity(final UserRequest request, @MappingTarget final User user);
 
     UserResponse toResponse(final User user);
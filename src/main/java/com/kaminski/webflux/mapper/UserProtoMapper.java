@@ -0,0 +1,104 @@
+package com.kaminski.webflux.mapper;
+
+import com.kaminski.webflux.controller.exceptions.StandardError;
+import com.kaminski.webflux.controller.exceptions.ValidationError;
+import com.kaminski.webflux.model.proto.ErrorMessage;
+import com.kaminski.webflux.model.proto.FieldErrorMessage;
+import com.kaminski.webflux.model.proto.UserPageMessage;
+import com.kaminski.webflux.model.proto.UserRequestMessage;
+import com.kaminski.webflux.model.proto.UserResponseMessage;
+import com.kaminski.webflux.model.request.UserRequest;
+import com.kaminski.webflux.model.response.PageResponse;
+import com.kaminski.webflux.model.response.UserResponse;
+
+/**
+ * Converts between the API records and their protobuf messages. Fields are optional on the
+ * wire, so null maps to unset and unset maps back to null; empty strings are kept.
+ */
+public final class UserProtoMapper {
+
+    private UserProtoMapper() {
+    }
+
+    public static UserRequest toRequest(final UserRequestMessage message) {
+        return new UserRequest(message.hasName() ? message.getName() : null,
+                message.hasEmail() ? message.getEmail() : null,
+                message.hasPassword() ? message.getPassword() : null);
+    }
+
+    public static UserRequestMessage toMessage(final UserRequest request) {
+        var builder = UserRequestMessage.newBuilder();
+        if (request.name() != null) {
+            builder.setName(request.name());
+        }
+        if (request.email() != null) {
+            builder.setEmail(request.email());
+        }
+        if (request.password() != null) {
+            builder.setPassword(request.password());
+        }
+        return builder.build();
+    }
+
+    public static UserResponse toResponse(final UserResponseMessage message) {
+        return new UserResponse(message.hasId() ? message.getId() : null,
+                message.hasName() ? message.getName() : null,
+                message.hasEmail() ? message.getEmail() : null);
+    }
+
+    public static UserResponseMessage toMessage(final UserResponse response) {
+        var builder = UserResponseMessage.newBuilder();
+        if (response.id() != null) {
+            builder.setId(response.id());
+        }
+        if (response.name() != null) {
+            builder.setName(response.name());
+        }
+        if (response.email() != null) {
+            builder.setEmail(response.email());
+        }
+        return builder.build();
+    }
+
+    public static UserPageMessage toMessage(final PageResponse<UserResponse> page) {
+        var builder = UserPageMessage.newBuilder();
+        page.content().forEach(user -> builder.addContent(toMessage(user)));
+        if (page.next() != null) {
+            builder.setNext(page.next());
+        }
+        return builder.build();
+    }
+
+    public static ErrorMessage toMessage(final StandardError error) {
+        var builder = ErrorMessage.newBuilder();
+        if (error.getTimestamp() != null) {
+            builder.setTimestamp(error.getTimestamp().toString());
+        }
+        if (error.getPath() != null) {
+            builder.setPath(error.getPath());
+        }
+        if (error.getStatus() != null) {
+            builder.setStatus(error.getStatus());
+        }
+        if (error.getError() != null) {
+            builder.setError(error.getError());
+        }
+        if (error.getMessage() != null) {
+            builder.setMessage(error.getMessage());
+        }
+        if (error instanceof ValidationError validation) {
+            validation.getFieldErrors().forEach(field -> {
+                var fieldError = FieldErrorMessage.newBuilder();
+                if (field.getFieldName() != null) {
+                    fieldError.setFieldName(field.getFieldName());
+                }
+                if (field.getMessage() != null) {
+                    fieldError.setMessage(field.getMessage());
+                }
+                builder.addFieldErrors(fieldError);
+            });
+        }
+        return builder.build();
+    }
+
+}
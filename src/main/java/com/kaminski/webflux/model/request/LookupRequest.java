@@ -0,0 +1,11 @@
+package com.kaminski.webflux.model.request;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record LookupRequest(
+        @NotEmpty(message = "must not be null or empty")
+        List<String> ids
+) {
+}
@@ -0,0 +1,30 @@
+package com.kaminski.webflux.model.response;
+
+public record BatchItemResponse(
+        long index,
+        String id,
+        Status status,
+        String message
+) {
+
+    public enum Status {
+        CREATED, DUPLICATE, INVALID, FAILED
+    }
+
+    public static BatchItemResponse created(long index, String id) {
+        return new BatchItemResponse(index, id, Status.CREATED, null);
+    }
+
+    public static BatchItemResponse duplicate(long index, String message) {
+        return new BatchItemResponse(index, null, Status.DUPLICATE, message);
+    }
+
+    public static BatchItemResponse invalid(long index, String message) {
+        return new BatchItemResponse(index, null, Status.INVALID, message);
+    }
+
+    public static BatchItemResponse failed(long index, String message) {
+        return new BatchItemResponse(index, null, Status.FAILED, message);
+    }
+
+}
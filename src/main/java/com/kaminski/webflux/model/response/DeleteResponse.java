@@ -0,0 +1,7 @@
+package com.kaminski.webflux.model.response;
+
+public record DeleteResponse(
+        int requested,
+        long deleted
+) {
+}
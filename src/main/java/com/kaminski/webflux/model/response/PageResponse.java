@@ -0,0 +1,15 @@
+package com.kaminski.webflux.model.response;
+
+import java.util.List;
+import java.util.function.Function;
+
+public record PageResponse<T>(
+        List<T> content,
+        String next
+) {
+
+    public <R> PageResponse<R> map(Function<? super T, ? extends R> mapper) {
+        return new PageResponse<>(content.stream().<R>map(mapper).toList(), next);
+    }
+
+}
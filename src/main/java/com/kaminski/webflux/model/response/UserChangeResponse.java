@@ -0,0 +1,13 @@
+package com.kaminski.webflux.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+@JsonInclude(NON_NULL)
+public record UserChangeResponse(
+        String type,
+        String id,
+        UserResponse user
+) {
+}
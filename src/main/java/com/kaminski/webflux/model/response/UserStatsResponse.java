@@ -0,0 +1,16 @@
+package com.kaminski.webflux.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+@JsonInclude(NON_NULL)
+public record UserStatsResponse(
+        long total,
+        Map<String, Long> domains,
+        Instant reconciledAt
+) {
+}
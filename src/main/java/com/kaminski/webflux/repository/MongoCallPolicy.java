@@ -0,0 +1,272 @@
+package com.kaminski.webflux.repository;
+
+import com.kaminski.webflux.config.UserProperties;
+import com.kaminski.webflux.service.exeception.DatabaseUnavailableException;
+import com.kaminski.webflux.service.exeception.ServiceUnavailableException;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Per-operation deadlines and hedging for reads, and a circuit breaker for every Mongo call.
+ */
+@Component
+public class MongoCallPolicy {
+
+    private static final long BUDGET_UNIT = 1_000;
+    private static final long LATENCY_REFRESH = TimeUnit.SECONDS.toNanos(1);
+
+    private final UserProperties.Timeouts timeouts;
+    private final UserProperties.Hedge hedge;
+    private final Map<String, Duration> operationTimeouts;
+    private final Set<String> hedgedOperations;
+    private final Map<String, Duration> serverTimeouts = new ConcurrentHashMap<>();
+    private final Map<String, Duration> clientTimeouts = new ConcurrentHashMap<>();
+    private final Map<String, Latency> latencies = new ConcurrentHashMap<>();
+    private final CircuitBreaker breaker;
+    private final boolean breakerEnabled;
+    private final Duration retryAfter;
+    private final MeterRegistry registry;
+    private final Counter hedges;
+    private final AtomicLong hedgeBudget = new AtomicLong();
+    private final long budgetDeposit;
+    private final long budgetMax;
+
+    public MongoCallPolicy(final UserProperties properties, final MeterRegistry registry) {
+        this.timeouts = properties.getTimeouts();
+        this.hedge = properties.getHedge();
+        this.operationTimeouts = timeouts.getOperations().entrySet().stream()
+                .collect(Collectors.toMap(entry -> entry.getKey().toLowerCase(Locale.ROOT), Map.Entry::getValue));
+        this.hedgedOperations = hedge.getOperations().stream()
+                .map(operation -> operation.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.registry = registry;
+        this.hedges = registry.counter("user.repository.hedges");
+        this.budgetDeposit = Math.round(hedge.getBudget() * BUDGET_UNIT);
+        this.budgetMax = hedge.getMaxBurst() * BUDGET_UNIT;
+
+        var config = properties.getCircuitBreaker();
+        this.breakerEnabled = config.isEnabled();
+        this.retryAfter = config.getWaitDurationInOpenState();
+        var breakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(config.getSlidingWindowSize())
+                .minimumNumberOfCalls(config.getMinimumNumberOfCalls())
+                .failureRateThreshold(config.getFailureRateThreshold())
+                .waitDurationInOpenState(config.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(config.getPermittedCallsInHalfOpenState())
+                .recordException(MongoCallPolicy::isInfrastructureFailure)
+                .build());
+        this.breaker = breakers.circuitBreaker("mongo");
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(breakers).bindTo(registry);
+    }
+
+    /**
+     * Server-side limit for the operation ({@code maxTime}); zero means unbounded.
+     */
+    public Duration timeout(final String operation) {
+        return serverTimeouts.computeIfAbsent(operation,
+                key -> operationTimeouts.getOrDefault(key.toLowerCase(Locale.ROOT), timeouts.getDefaultTimeout()));
+    }
+
+    public <T> Mono<T> protect(final String operation, final Mono<T> call) {
+        var guarded = hedged(operation)
+                ? hedge(operation, call)
+                : withDeadline(operation, call);
+        return breaker(guarded).onErrorMap(error -> translate(operation, error));
+    }
+
+    public <T> Flux<T> protect(final String operation, final Flux<T> call) {
+        var guarded = hedged(operation)
+                ? hedge(operation, call)
+                : withDeadline(operation, call);
+        return breaker(guarded).onErrorMap(error -> translate(operation, error));
+    }
+
+    /**
+     * Breaker only: cancelling a write on the client does not stop it on the server.
+     */
+    public <T> Mono<T> protectWrite(final String operation, final Mono<T> call) {
+        return breaker(call).onErrorMap(error -> translate(operation, error));
+    }
+
+    public <T> Flux<T> protectWrite(final String operation, final Flux<T> call) {
+        return breaker(call).onErrorMap(error -> translate(operation, error));
+    }
+
+    private <T> Mono<T> hedge(final String operation, final Mono<T> call) {
+        var latency = latency(operation);
+        return Mono.defer(() -> {
+            deposit();
+            var backup = Mono.delay(latency.delay())
+                    .flatMap(tick -> allowHedge() ? measured(operation, call, latency) : Mono.<T>never());
+            return Mono.firstWithSignal(measured(operation, call, latency), backup);
+        });
+    }
+
+    private <T> Flux<T> hedge(final String operation, final Flux<T> call) {
+        var latency = latency(operation);
+        return Flux.defer(() -> {
+            deposit();
+            var backup = Mono.delay(latency.delay())
+                    .flatMapMany(tick -> allowHedge() ? measured(operation, call, latency) : Flux.<T>never());
+            return Flux.firstWithSignal(measured(operation, call, latency), backup);
+        });
+    }
+
+    private <T> Mono<T> measured(final String operation, final Mono<T> call, final Latency latency) {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return withDeadline(operation, call).doFinally(signal -> latency.record(System.nanoTime() - start));
+        });
+    }
+
+    private <T> Flux<T> measured(final String operation, final Flux<T> call, final Latency latency) {
+        return Flux.defer(() -> {
+            var start = System.nanoTime();
+            return withDeadline(operation, call).doFinally(signal -> latency.record(System.nanoTime() - start));
+        });
+    }
+
+    private <T> Mono<T> withDeadline(final String operation, final Mono<T> call) {
+        var deadline = clientTimeout(operation);
+        return deadline.isZero() ? call : call.timeout(deadline);
+    }
+
+    private <T> Flux<T> withDeadline(final String operation, final Flux<T> call) {
+        var deadline = clientTimeout(operation);
+        return deadline.isZero() ? call : call.timeout(deadline);
+    }
+
+    private <T> Mono<T> breaker(final Mono<T> call) {
+        return breakerEnabled ? call.transformDeferred(CircuitBreakerOperator.of(breaker)) : call;
+    }
+
+    private <T> Flux<T> breaker(final Flux<T> call) {
+        return breakerEnabled ? call.transformDeferred(CircuitBreakerOperator.of(breaker)) : call;
+    }
+
+    private Duration clientTimeout(final String operation) {
+        return clientTimeouts.computeIfAbsent(operation, key -> {
+            var server = timeout(key);
+            return server.isZero() ? server : server.plus(timeouts.getGrace());
+        });
+    }
+
+    private boolean hedged(final String operation) {
+        return hedge.isEnabled() && hedgedOperations.contains(operation.toLowerCase(Locale.ROOT));
+    }
+
+    private void deposit() {
+        hedgeBudget.getAndUpdate(tokens -> Math.min(budgetMax, tokens + budgetDeposit));
+    }
+
+    private boolean allowHedge() {
+        if (breaker.getState() != CircuitBreaker.State.CLOSED) {
+            return false;
+        }
+        while (true) {
+            var tokens = hedgeBudget.get();
+            if (tokens < BUDGET_UNIT) {
+                return false;
+            }
+            if (hedgeBudget.compareAndSet(tokens, tokens - BUDGET_UNIT)) {
+                hedges.increment();
+                return true;
+            }
+        }
+    }
+
+    private Latency latency(final String operation) {
+        return latencies.computeIfAbsent(operation, key -> new Latency(Timer.builder("user.repository.attempts")
+                .tag("operation", key)
+                .publishPercentiles(hedge.getPercentile())
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .distributionStatisticBufferLength(3)
+                .register(registry)));
+    }
+
+    private Throwable translate(final String operation, final Throwable error) {
+        if (error instanceof CallNotPermittedException) {
+            return new DatabaseUnavailableException("Database unavailable, failing fast. Operation: " + operation, retryAfter);
+        }
+        if (isTimeout(error)) {
+            return new ServiceUnavailableException("Database operation timed out. Operation: " + operation);
+        }
+        return error;
+    }
+
+    private static boolean isTimeout(final Throwable error) {
+        for (var cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof MongoExecutionTimeoutException
+                    || cause instanceof QueryTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isInfrastructureFailure(final Throwable error) {
+        for (var cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof MongoExecutionTimeoutException
+                    || cause instanceof MongoTimeoutException || cause instanceof MongoSocketException
+                    || cause instanceof QueryTimeoutException || cause instanceof DataAccessResourceFailureException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // hedge delay: the configured latency percentile, refreshed at most once a second
+    private final class Latency {
+
+        private final Timer timer;
+        private volatile long delay = hedge.getInitialDelay().toNanos();
+        private volatile long refreshedAt = System.nanoTime();
+
+        private Latency(final Timer timer) {
+            this.timer = timer;
+        }
+
+        void record(final long nanos) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        Duration delay() {
+            var now = System.nanoTime();
+            if (now - refreshedAt > LATENCY_REFRESH) {
+                refreshedAt = now;
+                var percentiles = timer.takeSnapshot().percentileValues();
+                var observed = percentiles.length == 0 ? 0 : (long) percentiles[0].value(TimeUnit.NANOSECONDS);
+                delay = observed > 0 ? Math.max(observed, hedge.getMinDelay().toNanos()) : hedge.getInitialDelay().toNanos();
+            }
+            return Duration.ofNanos(delay);
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.kaminski.webflux.repository;
+
+import com.kaminski.webflux.config.UserProperties;
+import com.kaminski.webflux.entity.User;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+
+/**
+ * Coalesces concurrent lookups by id into batched {@code _id $in} queries. Lookups enter
+ * through a serialized {@link FluxSink}, so concurrent callers queue instead of retrying.
+ */
+@Component
+public class UserBatchLoader {
+
+    private final UserRepository repository;
+    private final boolean enabled;
+    private final Disposable subscription;
+    private FluxSink<Pending> pending;
+
+    public UserBatchLoader(final UserRepository repository, final UserProperties properties) {
+        var config = properties.getLoader();
+        this.repository = repository;
+        this.enabled = config.isEnabled();
+        this.subscription = Flux.<Pending>create(sink -> pending = sink)
+                .bufferTimeout(config.getMaxSize(), config.getMaxDelay())
+                .onBackpressureBuffer()
+                .flatMap(this::dispatch, config.getConcurrency())
+                .subscribe();
+    }
+
+    public Mono<User> load(final String id) {
+        if (!enabled) {
+            return repository.findById(id);
+        }
+        return Mono.defer(() -> {
+            if (pending.isCancelled()) {
+                return repository.findById(id);
+            }
+            var result = Sinks.<User>one();
+            pending.next(new Pending(UserRepository.normalizeId(id), result));
+            return result.asMono();
+        });
+    }
+
+    private Mono<Void> dispatch(final List<Pending> batch) {
+        var ids = batch.stream().map(Pending::id).distinct().toList();
+        return repository.findAllById(ids)
+                .collectMap(user -> UserRepository.normalizeId(user.getId()))
+                .doOnNext(users -> batch.forEach(request -> {
+                    var user = users.get(request.id());
+                    if (user == null) {
+                        request.result().tryEmitEmpty();
+                    } else {
+                        request.result().tryEmitValue(user);
+                    }
+                }))
+                .doOnError(e -> batch.forEach(request -> request.result().tryEmitError(e)))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    @PreDestroy
+    public void dispose() {
+        subscription.dispose();
+    }
+
+    private record Pending(String id, Sinks.One<User> result) {
+    }
+
+}
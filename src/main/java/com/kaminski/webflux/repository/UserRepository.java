@@ -3,37 +3,291 @@ package com.kaminski.webflux.repository;
 import com.kaminski.webflux.entity.User;
 import com.kaminski.webflux.mapper.UserMapper;
 import com.kaminski.webflux.model.request.UserRequest;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Collation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
+import reactor.core.observability.micrometer.Micrometer;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.springframework.data.domain.Sort.Direction.ASC;
 
 @Repository
 @RequiredArgsConstructor
 public class UserRepository {
 
+    private static final String METRIC = "user.repository";
+    private static final Collation NAME_COLLATION = Collation.of("en").strength(2);
+    private static final String MIGRATIONS = "migrations";
+    private static final String VERSION_MIGRATION = "user-version";
+
     private final ReactiveMongoTemplate mongoTemplate;
+    @Qualifier("readMongoTemplate")
+    private final ReactiveMongoTemplate readTemplate;
     private final UserMapper mapper;
+    private final MeterRegistry registry;
+    private final MongoCallPolicy policy;
 
     public Mono<User> save(final User user){
-        return mongoTemplate.save(user);
+        return timedWrite("save", mongoTemplate.save(user));
+    }
+
+    /**
+     * Inserts the users with a single unordered bulkWrite, assigning ids up front so
+     * callers can correlate results even when some documents are rejected.
+     */
+    public Mono<BulkWriteResult> insertAll(final List<User> users){
+        var models = users.stream()
+                .map(this::toDocument)
+                .map(InsertOneModel<Document>::new)
+                .toList();
+        return timedWrite("insertAll", mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class))
+                .flatMap(collection -> Mono.from(
+                        collection.bulkWrite(models, new BulkWriteOptions().ordered(false)))));
     }
 
     public Mono<User> findById(String id) {
-        return mongoTemplate.findById(id, User.class);
+        var query = deadline("findById", new Query(Criteria.where("id").is(id)));
+        return timed("findById", readTemplate.findOne(query, User.class));
+    }
+
+    public Mono<User> findByEmail(final String email) {
+        var query = deadline("findByEmail", new Query(Criteria.where("email").is(email)));
+        return timed("findByEmail", mongoTemplate.findOne(query, User.class));
+    }
+
+    /**
+     * Existence check answered from the unique email index alone: the projection keeps only
+     * the indexed field and drops _id, so the query is covered and never fetches documents.
+     */
+    public Mono<Boolean> existsByEmail(final String email) {
+        var query = deadline("existsByEmail", new Query(Criteria.where("email").is(email)));
+        query.fields().include("email").exclude("id");
+        return timed("existsByEmail", mongoTemplate.findOne(query, User.class))
+                .hasElement();
+    }
+
+    public Flux<User> findAllById(final Collection<String> ids) {
+        var query = deadline("findAllById", new Query(Criteria.where("id").in(ids)));
+        return timed("findAllById", readTemplate.find(query, User.class));
+    }
+
+    public Flux<User> findAll(final String after, final int limit, final Set<String> fields){
+        var query = deadline("findAll", projection(fields)
+                .with(Sort.by(ASC, "id"))
+                .limit(limit));
+        if (after != null) {
+            query.addCriteria(Criteria.where("id").gt(after));
+        }
+        return timed("findAll", readTemplate.find(query, User.class));
+    }
+
+    /**
+     * Case-insensitive name prefix scan on the name_ci index, ordered by name then id and
+     * resumed after the given keys. Under the index collation U+FFFF sorts after every other
+     * character, which makes it a valid upper bound for the prefix range.
+     */
+    public Flux<User> searchByPrefix(final String prefix, final String afterName, final String afterId, final int limit){
+        var criteria = Criteria.where("name").gte(prefix).lt(prefix + "\uffff");
+        if (afterName != null) {
+            criteria.orOperator(
+                    Criteria.where("name").gt(afterName),
+                    new Criteria().andOperator(Criteria.where("name").is(afterName), Criteria.where("id").gt(afterId)));
+        }
+        var query = deadline("searchByPrefix", new Query(criteria)
+                .with(Sort.by(ASC, "name", "id"))
+                .limit(limit)
+                .collation(NAME_COLLATION));
+        return timed("searchByPrefix", mongoTemplate.find(query, User.class));
+    }
+
+    public Flux<User> searchByText(final String text, final int limit){
+        var query = deadline("searchByText", TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                .sortByScore()
+                .limit(limit));
+        return timed("searchByText", mongoTemplate.find(query, User.class));
+    }
+
+    public Flux<User> stream(final int batchSize, final Set<String> fields){
+        var query = projection(fields)
+                .with(Sort.by(ASC, "id"))
+                .cursorBatchSize(batchSize);
+        return timed("stream", mongoTemplate.find(query, User.class));
+    }
+
+    /**
+     * Applies a {@code $set} of the non-null fields of {@code changes} and bumps the version in
+     * a single round trip, returning the user before and after the update or empty when no
+     * document matches.
+     */
+    public Mono<Tuple2<User, User>> findAndModify(final String id, final Long version, final User changes){
+        var criteria = Criteria.where("id").is(id);
+        if (version != null) {
+            criteria.and("version").is(version);
+        }
+        var update = new Update().inc("version", 1);
+        if (changes.getName() != null) {
+            update.set("name", changes.getName());
+        }
+        if (changes.getEmail() != null) {
+            update.set("email", changes.getEmail());
+        }
+        if (changes.getPassword() != null) {
+            update.set("password", changes.getPassword());
+        }
+        var options = FindAndModifyOptions.options().returnNew(false);
+        return timedWrite("findAndModify",
+                mongoTemplate.findAndModify(new Query(criteria), update, options, User.class))
+                .map(previous -> Tuples.of(previous, applied(previous, changes)));
+    }
+
+    /**
+     * Gives users stored before versioning was introduced version 0, so they get an ETag and
+     * can be matched by If-Match. Runs once: afterwards a marker in the migrations collection
+     * short-circuits it with an _id lookup, and the result is empty.
+     */
+    public Mono<Long> initializeVersions(){
+        var marker = new Query(Criteria.where("_id").is(VERSION_MIGRATION));
+        var query = new Query(Criteria.where("version").exists(false));
+        return mongoTemplate.exists(marker, MIGRATIONS)
+                .filter(migrated -> !migrated)
+                .flatMap(pending -> timedWrite("initializeVersions",
+                        mongoTemplate.updateMulti(query, new Update().set("version", 0L), User.class)))
+                .map(UpdateResult::getModifiedCount)
+                .flatMap(modified -> timedWrite("markMigration",
+                        mongoTemplate.upsert(marker, new Update().set("appliedAt", new Date()), MIGRATIONS))
+                        .thenReturn(modified));
+    }
+
+    public Mono<Boolean> exists(final String id){
+        var query = deadline("exists", new Query(Criteria.where("id").is(id)));
+        return timed("exists", mongoTemplate.exists(query, User.class));
     }
 
-    public Flux<User> findAll(){
-        return mongoTemplate.findAll(User.class);
+    /**
+     * Tails the users change stream, resuming after the given token when present. Requires a
+     * replica set or sharded cluster.
+     */
+    public Flux<ChangeStreamEvent<User>> changes(final BsonValue resumeToken) {
+        return mongoTemplate.changeStream(User.class)
+                .withOptions(options -> {
+                    options.returnFullDocumentOnUpdate();
+                    if (resumeToken != null) {
+                        options.resumeAfter(resumeToken);
+                    }
+                })
+                .listen();
     }
 
-    public Mono<User> findEndRemove(String id) {
+    /**
+     * Deletes the user (matching {@code version} when given) and returns its email, the only
+     * field fetched.
+     */
+    public Mono<User> findAndRemove(final String id, final Long version) {
         var criteria = Criteria.where("id").is(id);
-        var query = new Query().addCriteria(criteria);
-        return mongoTemplate.findAndRemove(query, User.class);
+        if (version != null) {
+            criteria.and("version").is(version);
+        }
+        var query = new Query(criteria);
+        query.fields().include("email");
+        return timedWrite("findAndRemove", mongoTemplate.findAndRemove(query, User.class));
+    }
+
+    public Mono<DeleteResult> removeAll(final List<String> ids) {
+        var query = new Query(Criteria.where("id").in(ids));
+        return timedWrite("removeAll", mongoTemplate.remove(query, User.class));
+    }
+
+    /**
+     * Mongo matches ObjectId hex in any case but returns it in lowercase, so ids are compared
+     * in that form.
+     */
+    public static String normalizeId(final String id) {
+        return ObjectId.isValid(id) ? id.toLowerCase(Locale.ROOT) : id;
+    }
+
+    private static User applied(final User previous, final User changes){
+        var updated = previous.toBuilder()
+                .version(previous.getVersion() == null ? 1 : previous.getVersion() + 1);
+        if (changes.getName() != null) {
+            updated.name(changes.getName());
+        }
+        if (changes.getEmail() != null) {
+            updated.email(changes.getEmail());
+        }
+        if (changes.getPassword() != null) {
+            updated.password(changes.getPassword());
+        }
+        return updated.build();
+    }
+
+    private Query projection(final Set<String> fields){
+        var query = new Query();
+        fields.forEach(field -> query.fields().include(field));
+        return query;
+    }
 
+    /**
+     * Sends the read's deadline to the server as {@code maxTimeMS}.
+     */
+    private Query deadline(final String operation, final Query query){
+        var timeout = policy.timeout(operation);
+        return timeout.isZero() ? query : query.maxTime(timeout);
     }
+
+    private <T> Mono<T> timed(final String operation, final Mono<T> mono){
+        return policy.protect(operation, mono).name(METRIC).tag("operation", operation).tap(Micrometer.metrics(registry));
+    }
+
+    private <T> Flux<T> timed(final String operation, final Flux<T> flux){
+        return policy.protect(operation, flux).name(METRIC).tag("operation", operation).tap(Micrometer.metrics(registry));
+    }
+
+    private <T> Mono<T> timedWrite(final String operation, final Mono<T> mono){
+        return policy.protectWrite(operation, mono).name(METRIC).tag("operation", operation).tap(Micrometer.metrics(registry));
+    }
+
+    private <T> Flux<T> timedWrite(final String operation, final Flux<T> flux){
+        return policy.protectWrite(operation, flux).name(METRIC).tag("operation", operation).tap(Micrometer.metrics(registry));
+    }
+
+    private Document toDocument(final User user){
+        if (user.getId() == null) {
+            user.setId(new ObjectId().toHexString());
+        }
+        if (user.getVersion() == null) {
+            user.setVersion(0L);
+        }
+        var document = new Document();
+        mongoTemplate.getConverter().write(user, document);
+        return document;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.kaminski.webflux.repository;
+
+import com.kaminski.webflux.entity.User;
+import com.kaminski.webflux.entity.UserStat;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.observability.micrometer.Micrometer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.kaminski.webflux.entity.UserStat.DOMAIN_PREFIX;
+import static com.kaminski.webflux.entity.UserStat.TOTAL_ID;
+import static org.springframework.data.domain.Sort.Direction.DESC;
+
+@Repository
+@RequiredArgsConstructor
+public class UserStatsRepository {
+
+    private static final String METRIC = "user.repository";
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+    private static final ReplaceOptions REPLACE_UPSERT = new ReplaceOptions().upsert(true);
+
+    /**
+     * Every user grouped by the lower-cased text after the last '@', the same rule as
+     * {@code UserStatsService.domain}; users without an email fall in the empty group so the
+     * total still counts them.
+     */
+    private static final List<Document> DOMAIN_PIPELINE = List.of(
+            new Document("$group", new Document("_id",
+                    new Document("$cond", List.of(
+                            new Document("$eq", List.of(new Document("$type", "$email"), "string")),
+                            new Document("$toLower", new Document("$arrayElemAt",
+                                    List.of(new Document("$split", List.of("$email", "@")), -1))),
+                            "")))
+                    .append("count", new Document("$sum", 1))));
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MeterRegistry registry;
+
+    /**
+     * Applies the deltas to the total and the per-domain counters with one unordered bulkWrite,
+     * creating missing counters on the way.
+     */
+    public Mono<Void> increment(final long total, final Map<String, Long> domains) {
+        var models = new ArrayList<WriteModel<Document>>(domains.size() + 1);
+        models.add(new UpdateOneModel<>(Filters.eq("_id", TOTAL_ID), Updates.inc("count", total), UPSERT));
+        domains.forEach((domain, delta) -> models.add(new UpdateOneModel<>(
+                Filters.eq("_id", DOMAIN_PREFIX + domain),
+                Updates.combine(Updates.inc("count", delta), Updates.setOnInsert("domain", domain)),
+                UPSERT)));
+        return timed("incrementStats", bulkWrite(models)).then();
+    }
+
+    public Mono<UserStat> findTotal() {
+        return timed("findTotal", mongoTemplate.findById(TOTAL_ID, UserStat.class));
+    }
+
+    public Flux<UserStat> findTopDomains(final int limit) {
+        var query = new Query(Criteria.where("domain").exists(true))
+                .with(Sort.by(DESC, "count"))
+                .limit(limit);
+        return timed("findTopDomains", mongoTemplate.find(query, UserStat.class));
+    }
+
+    public Mono<Long> estimatedCount() {
+        return timed("estimatedCount", mongoTemplate.estimatedCount(User.class));
+    }
+
+    /**
+     * Recomputes every counter from the users collection and overwrites the summary, writing
+     * the domain counters in batches as the groups stream in and then deleting those this run
+     * did not stamp. Deltas applied while the aggregation runs can be lost or counted twice;
+     * the next run fixes them.
+     */
+    public Mono<Void> reconcile(final Instant now, final int batchSize) {
+        var reconciledAt = Date.from(now);
+        return timed("reconcileStats", Mono.defer(() -> {
+            var total = new AtomicLong();
+            return mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class))
+                    .flatMapMany(collection -> collection.aggregate(DOMAIN_PIPELINE).allowDiskUse(true))
+                    .doOnNext(group -> total.addAndGet(((Number) group.get("count")).longValue()))
+                    .filter(group -> !group.getString("_id").isEmpty())
+                    .<WriteModel<Document>>map(group -> new ReplaceOneModel<>(
+                            Filters.eq("_id", DOMAIN_PREFIX + group.getString("_id")),
+                            new Document("domain", group.getString("_id"))
+                                    .append("count", ((Number) group.get("count")).longValue())
+                                    .append("reconciledAt", reconciledAt),
+                            REPLACE_UPSERT))
+                    .buffer(batchSize)
+                    .concatMap(this::bulkWrite)
+                    .then(Mono.defer(() -> bulkWrite(List.of(
+                            new DeleteManyModel<>(Filters.and(
+                                    Filters.exists("domain"), Filters.ne("reconciledAt", reconciledAt))),
+                            new ReplaceOneModel<>(Filters.eq("_id", TOTAL_ID),
+                                    new Document("count", total.get()).append("reconciledAt", reconciledAt),
+                                    REPLACE_UPSERT)))));
+        })).then();
+    }
+
+    private Mono<BulkWriteResult> bulkWrite(final List<WriteModel<Document>> models) {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(UserStat.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(models)));
+    }
+
+    private <T> Mono<T> timed(final String operation, final Mono<T> mono){
+        return mono.name(METRIC).tag("operation", operation).tap(Micrometer.metrics(registry));
+    }
+
+    private <T> Flux<T> timed(final String operation, final Flux<T> flux){
+        return flux.name(METRIC).tag("operation", operation).tap(Micrometer.metrics(registry));
+    }
+
+}
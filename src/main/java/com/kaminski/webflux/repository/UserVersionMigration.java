@@ -0,0 +1,23 @@
+package com.kaminski.webflux.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class UserVersionMigration {
+
+    private final UserRepository repository;
+    private final MeterRegistry registry;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        repository.initializeVersions().subscribe(
+                migrated -> registry.counter("user.migration.versioned").increment(migrated),
+                error -> registry.counter("user.migration.errors").increment());
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.kaminski.webflux.service;
+
+import com.kaminski.webflux.config.UserProperties;
+import com.kaminski.webflux.service.exeception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import reactor.core.observability.micrometer.Micrometer;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * BCrypt off the event loop, on a bounded scheduler that rejects when its queue is full.
+ */
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder encoder;
+    private final Scheduler scheduler;
+    private final Counter rejected;
+
+    public PasswordHasher(final UserProperties properties, final MeterRegistry registry) {
+        var config = properties.getPassword();
+        this.encoder = new BCryptPasswordEncoder(config.getStrength());
+        this.scheduler = Micrometer.timedScheduler(
+                Schedulers.newBoundedElastic(config.getThreads(), config.getQueueSize(), "password-hasher"),
+                registry, "user.password.scheduler", Tags.empty());
+        this.rejected = registry.counter("user.password.rejected");
+    }
+
+    public Mono<String> hash(final String password) {
+        return Mono.fromCallable(() -> encoder.encode(password))
+                .subscribeOn(scheduler)
+                .onErrorMap(RejectedExecutionException.class, e -> {
+                    rejected.increment();
+                    return new ServiceUnavailableException("Password hashing capacity exhausted, retry later");
+                });
+    }
+
+    @PreDestroy
+    public void dispose() {
+        scheduler.dispose();
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.kaminski.webflux.service;
+
+import com.kaminski.webflux.entity.User;
+
+/**
+ * A user mutation read from the change stream. {@code user} is absent for deletes.
+ */
+public record UserChange(
+        String resumeToken,
+        String type,
+        String id,
+        User user
+) {
+}
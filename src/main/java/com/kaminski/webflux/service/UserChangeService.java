@@ -0,0 +1,81 @@
+package com.kaminski.webflux.service;
+
+import com.kaminski.webflux.config.UserProperties;
+import com.kaminski.webflux.entity.User;
+import com.kaminski.webflux.repository.UserRepository;
+import com.kaminski.webflux.service.exeception.InvalidCursorException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+/**
+ * User mutations from the change stream, buffered per subscriber under the configured overflow policy.
+ */
+@Service
+public class UserChangeService {
+
+    private static final String RESUME_TOKEN_KEY = "_data";
+
+    private final UserRepository repository;
+    private final UserProperties.Changes config;
+    private final Counter dropped;
+
+    public UserChangeService(final UserRepository repository, final UserProperties properties,
+                             final MeterRegistry registry) {
+        this.repository = repository;
+        this.config = properties.getChanges();
+        this.dropped = registry.counter("user.changes.dropped");
+    }
+
+    public Flux<UserChange> changes(final String resumeToken){
+        return Flux.defer(() -> repository.changes(parseResumeToken(resumeToken)))
+                .map(this::toChange)
+                .onBackpressureBuffer(config.getBufferSize(), change -> dropped.increment(), overflowStrategy());
+    }
+
+    private BufferOverflowStrategy overflowStrategy(){
+        return switch (config.getOverflow()) {
+            case DROP_OLDEST -> BufferOverflowStrategy.DROP_OLDEST;
+            case DROP_LATEST -> BufferOverflowStrategy.DROP_LATEST;
+            case DISCONNECT -> BufferOverflowStrategy.ERROR;
+        };
+    }
+
+    private UserChange toChange(final ChangeStreamEvent<User> event){
+        var raw = event.getRaw();
+        var key = raw == null || raw.getDocumentKey() == null ? null : raw.getDocumentKey().get("_id");
+        var type = event.getOperationType() == null ? "unknown" : event.getOperationType().getValue();
+        return new UserChange(resumeToken(event.getResumeToken()), type, idOf(key), event.getBody());
+    }
+
+    private static String idOf(final BsonValue key){
+        if (key == null) {
+            return null;
+        }
+        return key.isObjectId() ? key.asObjectId().getValue().toHexString() : key.toString();
+    }
+
+    private static String resumeToken(final BsonValue token){
+        if (token == null || !token.isDocument() || !token.asDocument().isString(RESUME_TOKEN_KEY)) {
+            return null;
+        }
+        return token.asDocument().getString(RESUME_TOKEN_KEY).getValue();
+    }
+
+    private static BsonValue parseResumeToken(final String token){
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        if (!token.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            throw new InvalidCursorException("Invalid resume token: " + token);
+        }
+        return new BsonDocument(RESUME_TOKEN_KEY, new BsonString(token));
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.kaminski.webflux.service;
+
+import com.kaminski.webflux.service.exeception.InvalidCursorException;
+
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Opaque keyset cursor: the base64url encoded sort key of the last user of a page. Compound
+ * keys (e.g. name and id for search) are joined with a NUL separator.
+ */
+public final class UserCursor {
+
+    private static final String SEPARATOR = "\u0000";
+
+    private UserCursor() {
+    }
+
+    public static String encode(final String... keys) {
+        var value = String.join(SEPARATOR, keys);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(UTF_8));
+    }
+
+    public static String decode(final String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public static String[] decode(final String cursor, final int keys) {
+        var value = decode(cursor);
+        if (value == null) {
+            return null;
+        }
+        var parts = value.split(SEPARATOR, -1);
+        if (parts.length != keys) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+        return parts;
+    }
+
+}
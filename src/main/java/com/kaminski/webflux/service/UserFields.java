@@ -0,0 +1,50 @@
+package com.kaminski.webflux.service;
+
+import com.kaminski.webflux.entity.User;
+import com.kaminski.webflux.service.exeception.InvalidFieldsException;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parses the {@code fields} request parameter into a projection on {@link User}. The id is
+ * always returned since it identifies the resource and keys the pagination cursor, and the
+ * password is never projectable.
+ */
+public final class UserFields {
+
+    private static final Set<String> PROJECTABLE = Set.of("id", "name", "email");
+
+    private UserFields() {
+    }
+
+    public static Set<String> parse(final String fields) {
+        if (fields == null || fields.isBlank()) {
+            return Set.of();
+        }
+        var requested = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        for (var field : requested) {
+            if (!PROJECTABLE.contains(field)) {
+                throw new InvalidFieldsException("Invalid field: " + field + ". Allowed: " + PROJECTABLE);
+            }
+        }
+        return requested;
+    }
+
+    public static User project(final User user, final Set<String> fields) {
+        if (fields.isEmpty()) {
+            return user;
+        }
+        return User.builder()
+                .id(user.getId())
+                .name(fields.contains("name") ? user.getName() : null)
+                .email(fields.contains("email") ? user.getEmail() : null)
+                .version(user.getVersion())
+                .build();
+    }
+
+}
@@ -1,52 +1,292 @@
 package com.kaminski.webflux.service;
 
+import com.kaminski.webflux.cache.UserCache;
+import com.kaminski.webflux.config.UserProperties;
 import com.kaminski.webflux.entity.User;
 import com.kaminski.webflux.mapper.UserMapper;
 import com.kaminski.webflux.model.request.UserRequest;
+import com.kaminski.webflux.model.response.BatchItemResponse;
+import com.kaminski.webflux.model.response.DeleteResponse;
+import com.kaminski.webflux.model.response.PageResponse;
+import com.kaminski.webflux.repository.UserBatchLoader;
 import com.kaminski.webflux.repository.UserRepository;
+import com.kaminski.webflux.service.exeception.DuplicateKeyMessage;
+import com.kaminski.webflux.service.exeception.LimitExceededException;
 import com.kaminski.webflux.service.exeception.ObjectNotFoundException;
+import com.kaminski.webflux.service.exeception.PreconditionFailedException;
+import com.kaminski.webflux.service.exeception.ServiceUnavailableException;
+import com.kaminski.webflux.validator.UserRequestValidator;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.result.DeleteResult;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
+    private static final String USER_TYPE = User.class.toString();
+
     private final UserRepository repository;
+    private final UserBatchLoader batchLoader;
     private final UserMapper mapper;
+    private final UserProperties properties;
+    private final UserRequestValidator validator;
+    private final UserCache cache;
+    private final PasswordHasher passwordHasher;
+    private final UserStatsService stats;
 
     public Mono<User> save(final UserRequest request){
         var user = mapper.toEntity(request);
-        return repository.save(user);
+        return hashPassword(user)
+                .flatMap(repository::save)
+                .doOnNext(saved -> {
+                    cache.invalidateEmail(saved.getEmail());
+                    stats.recordCreated(List.of(saved.getEmail()));
+                });
+    }
+
+    public Flux<BatchItemResponse> saveAll(final Flux<UserRequest> requests){
+        var batch = properties.getBatch();
+        return requests.index()
+                .bufferTimeout(batch.getSize(), batch.getWindow())
+                .flatMapSequential(this::saveBatch, batch.getConcurrency());
     }
 
     public Mono<User> findById(final String id){
-        return handleNotFound(repository.findById(id), id);
+        return handleNotFound(cache.get(id, batchLoader::load), id);
     }
 
-    public Flux<User> findAll(){
-        return repository.findAll();
+    public Mono<User> findById(final String id, final String fields){
+        return Mono.defer(() -> {
+            var projection = UserFields.parse(fields);
+            return findById(id).map(user -> UserFields.project(user, projection));
+        });
     }
 
-    public Mono<User> update(final String id, final UserRequest request) {
-        return findById(id)
-                .map(entity -> mapper.toEntity(request, entity))
-                .flatMap(repository::save);
+    public Mono<User> findByEmail(final String email){
+        return repository.findByEmail(email)
+                .switchIfEmpty(Mono.error(() ->
+                        new ObjectNotFoundException("Object not found. Email: " + email + ", Type: " + USER_TYPE)));
     }
 
-    public Mono<User> delete(final String id){
-        return handleNotFound(repository.findEndRemove(id), id);
+    public Mono<Boolean> existsByEmail(final String email){
+        return Mono.defer(() -> {
+            if (cache.isEmailAbsent(email)) {
+                return Mono.just(false);
+            }
+            return repository.existsByEmail(email)
+                    .doOnNext(exists -> {
+                        if (!exists) {
+                            cache.markEmailAbsent(email);
+                        }
+                    });
+        });
     }
 
-    private <T> Mono<T> handleNotFound(Mono<T> mono, String id){
+    public Mono<Map<String, User>> findAllById(final List<String> ids){
+        var maxIds = properties.getLookup().getMaxIds();
+        if (ids.size() > maxIds) {
+            return Mono.error(new LimitExceededException(
+                    "Too many ids: " + ids.size() + ". Maximum: " + maxIds));
+        }
+        return repository.findAllById(new LinkedHashSet<>(ids))
+                .collectMap(user -> UserRepository.normalizeId(user.getId()))
+                .map(users -> {
+                    var found = new HashMap<String, User>(users.size());
+                    ids.forEach(id -> {
+                        var user = users.get(UserRepository.normalizeId(id));
+                        if (user != null) {
+                            found.put(id, user);
+                        }
+                    });
+                    return found;
+                });
+    }
+
+    public Mono<PageResponse<User>> findAll(final String after, final Integer limit, final String fields){
+        var size = pageSize(limit);
+        return Mono.defer(() -> repository.findAll(UserCursor.decode(after), size + 1, UserFields.parse(fields))
+                .collectList()
+                .map(users -> toPage(users, size, user -> UserCursor.encode(user.getId()))));
+    }
+
+    public Mono<PageResponse<User>> searchByPrefix(final String prefix, final String after, final Integer limit){
+        var size = pageSize(limit);
+        return Mono.defer(() -> {
+            var keys = UserCursor.decode(after, 2);
+            return repository.searchByPrefix(prefix,
+                            keys == null ? null : keys[0], keys == null ? null : keys[1], size + 1)
+                    .collectList()
+                    .map(users -> toPage(users, size, user -> UserCursor.encode(user.getName(), user.getId())));
+        });
+    }
 
-        var message = String.format(
-                "Object not found. Id: %s, Type: %s", id, User.class);
+    public Mono<PageResponse<User>> searchByText(final String text, final Integer limit){
+        return repository.searchByText(text, pageSize(limit))
+                .collectList()
+                .map(users -> new PageResponse<>(users, null));
+    }
+
+    public Flux<User> export(final String fields){
+        var export = properties.getExport();
+        return Flux.defer(() -> repository.stream(export.getBatchSize(), UserFields.parse(fields)))
+                .limitRate(export.getLimitRate());
+    }
+
+    public Mono<User> update(final String id, final UserRequest request, final Long version) {
+        var changes = mapper.toEntity(request);
+        var hashed = request.password() == null ? Mono.just(changes) : hashPassword(changes);
+        var updated = hashed
+                .flatMap(user -> repository.findAndModify(id, version, user))
+                .map(result -> {
+                    stats.recordEmailChanged(result.getT1().getEmail(), result.getT2().getEmail());
+                    return result.getT2();
+                })
+                .switchIfEmpty(Mono.defer(() -> this.<User>versionConflict(id, version)));
+        return handleNotFound(updated, id)
+                .doOnNext(user -> {
+                    cache.put(id, user);
+                    cache.invalidateEmail(request.email());
+                });
+    }
+
+    public Mono<Void> delete(final String id, final Long version){
+        var removed = repository.findAndRemove(id, version)
+                .switchIfEmpty(Mono.defer(() -> this.<User>versionConflict(id, version)));
+        return handleNotFound(removed, id)
+                .doOnNext(user -> {
+                    cache.invalidate(id);
+                    stats.recordDeleted(List.of(user.getEmail()));
+                })
+                .then();
+    }
+
+    public Mono<DeleteResponse> deleteAll(final List<String> ids){
+        var distinct = ids.stream().map(UserRepository::normalizeId).distinct().toList();
+        var maxIds = properties.getDelete().getMaxIds();
+        if (distinct.size() > maxIds) {
+            return Mono.error(new LimitExceededException(
+                    "Too many ids: " + distinct.size() + ". Maximum: " + maxIds));
+        }
+        return repository.removeAll(distinct)
+                .map(DeleteResult::getDeletedCount)
+                .doOnNext(deleted -> {
+                    ids.forEach(cache::invalidate);
+                    stats.recordDeleted(deleted);
+                })
+                .map(deleted -> new DeleteResponse(distinct.size(), deleted));
+    }
 
-        return mono.switchIfEmpty(Mono.error(
-                new ObjectNotFoundException(message)
+    private Flux<BatchItemResponse> saveBatch(final List<Tuple2<Long, UserRequest>> items){
+        var results = new ArrayList<BatchItemResponse>(items.size());
+        var indexes = new ArrayList<Long>(items.size());
+        var users = new ArrayList<User>(items.size());
+
+        for (var item : items) {
+            var violations = validator.validate(item.getT2());
+            if (violations.isEmpty()) {
+                indexes.add(item.getT1());
+                users.add(mapper.toEntity(item.getT2()));
+            } else {
+                results.add(BatchItemResponse.invalid(item.getT1(), String.join(", ", violations)));
+            }
+        }
+
+        if (users.isEmpty()) {
+            return Flux.fromIterable(results);
+        }
+
+        return Flux.fromIterable(users)
+                .flatMap(this::hashPassword, properties.getPassword().getThreads())
+                .then(Mono.defer(() -> repository.insertAll(users)))
+                .map(result -> List.<BulkWriteError>of())
+                .onErrorResume(MongoBulkWriteException.class, e -> Mono.just(e.getWriteErrors()))
+                .flatMapIterable(errors -> {
+                    var failures = new HashMap<Integer, BulkWriteError>();
+                    errors.forEach(error -> failures.put(error.getIndex(), error));
+                    var created = new ArrayList<String>(users.size());
+                    for (int i = 0; i < users.size(); i++) {
+                        var result = toBatchItem(indexes.get(i), users.get(i), failures.get(i));
+                        if (result.status() == BatchItemResponse.Status.CREATED) {
+                            created.add(users.get(i).getEmail());
+                        }
+                        results.add(result);
+                    }
+                    stats.recordCreated(created);
+                    results.sort(Comparator.comparingLong(BatchItemResponse::index));
+                    return results;
+                })
+                .onErrorResume(ServiceUnavailableException.class, e -> {
+                    indexes.forEach(index -> results.add(BatchItemResponse.failed(index, e.getMessage())));
+                    results.sort(Comparator.comparingLong(BatchItemResponse::index));
+                    return Flux.fromIterable(results);
+                });
+    }
+
+    private Mono<User> hashPassword(final User user){
+        return passwordHasher.hash(user.getPassword())
+                .map(hash -> {
+                    user.setPassword(hash);
+                    return user;
+                });
+    }
+
+    private BatchItemResponse toBatchItem(final long index, final User user, final BulkWriteError error){
+        if (error == null) {
+            cache.invalidateEmail(user.getEmail());
+            return BatchItemResponse.created(index, user.getId());
+        }
+        if (error.getCategory() == ErrorCategory.DUPLICATE_KEY) {
+            return BatchItemResponse.duplicate(index, DuplicateKeyMessage.resolve(error.getMessage()));
+        }
+        return BatchItemResponse.failed(index, error.getMessage());
+    }
+
+    private int pageSize(final Integer limit){
+        var page = properties.getPage();
+        if (limit == null || limit <= 0) {
+            return page.getDefaultLimit();
+        }
+        return Math.min(limit, page.getMaxLimit());
+    }
+
+    private PageResponse<User> toPage(final List<User> users, final int size, final Function<User, String> cursor){
+        if (users.size() <= size) {
+            return new PageResponse<>(users, null);
+        }
+        var content = users.subList(0, size);
+        return new PageResponse<>(content, cursor.apply(content.get(size - 1)));
+    }
+
+    private <T> Mono<T> versionConflict(final String id, final Long version){
+        if (version == null) {
+            return Mono.empty();
+        }
+        return repository.exists(id)
+                .flatMap(exists -> exists ? Mono.<T>error(preconditionFailed(id)) : Mono.<T>empty());
+    }
+
+    private PreconditionFailedException preconditionFailed(final String id){
+        return new PreconditionFailedException("Version mismatch. Id: " + id);
+    }
+
+    private <T> Mono<T> handleNotFound(Mono<T> mono, String id){
+        return mono.switchIfEmpty(Mono.error(() ->
+                new ObjectNotFoundException("Object not found. Id: " + id + ", Type: " + USER_TYPE)
         ));
     }
 
@@ -0,0 +1,165 @@
+package com.kaminski.webflux.service;
+
+import com.kaminski.webflux.config.UserProperties;
+import com.kaminski.webflux.model.response.UserStatsResponse;
+import com.kaminski.webflux.repository.UserStatsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains the users summary (total and users per email domain) so dashboards read a handful
+ * of counters instead of scanning the collection. Writes only add to in-memory deltas, which
+ * are flushed in one bulkWrite per interval, so they never fail or delay the user operation
+ * that triggered them; the periodic reconciliation corrects any delta that was lost.
+ */
+@Service
+public class UserStatsService {
+
+    private final UserStatsRepository repository;
+    private final UserProperties.Stats config;
+    private final Counter errors;
+    private final AtomicLong pendingTotal = new AtomicLong();
+    private final ConcurrentHashMap<String, Long> pendingDomains = new ConcurrentHashMap<>();
+    private Disposable flushing;
+    private Disposable reconciliation;
+
+    public UserStatsService(final UserStatsRepository repository, final UserProperties properties,
+                            final MeterRegistry registry) {
+        this.repository = repository;
+        this.config = properties.getStats();
+        this.errors = registry.counter("user.stats.errors");
+    }
+
+    public void recordCreated(final Collection<String> emails) {
+        record(emails, 1);
+    }
+
+    public void recordDeleted(final Collection<String> emails) {
+        record(emails, -1);
+    }
+
+    /**
+     * Records deletions whose emails were not fetched. Only the total moves; the domain
+     * counters are corrected by the next reconciliation.
+     */
+    public void recordDeleted(final long count) {
+        pendingTotal.addAndGet(-count);
+    }
+
+    public void recordEmailChanged(final String previous, final String current) {
+        if (previous == null || current == null || domain(previous).equals(domain(current))) {
+            return;
+        }
+        pendingDomains.merge(domain(previous), -1L, Long::sum);
+        pendingDomains.merge(domain(current), 1L, Long::sum);
+    }
+
+    /**
+     * Writes the accumulated deltas. Each pending counter is taken atomically, so deltas
+     * recorded meanwhile go to the next flush; a failed flush puts its deltas back.
+     */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            var total = pendingTotal.getAndSet(0);
+            var domains = new HashMap<String, Long>();
+            for (var domain : pendingDomains.keySet()) {
+                var delta = pendingDomains.remove(domain);
+                if (delta != null && delta != 0) {
+                    domains.put(domain, delta);
+                }
+            }
+            if (total == 0 && domains.isEmpty()) {
+                return Mono.empty();
+            }
+            return repository.increment(total, domains)
+                    .doOnError(error -> {
+                        pendingTotal.addAndGet(total);
+                        domains.forEach((domain, delta) -> pendingDomains.merge(domain, delta, Long::sum));
+                    });
+        });
+    }
+
+    /**
+     * Reads the summary. Until a reconciliation has established the total, it falls back to
+     * the collection's estimated document count.
+     */
+    public Mono<UserStatsResponse> stats() {
+        var total = repository.findTotal()
+                .filter(stat -> stat.getReconciledAt() != null)
+                .map(stat -> new UserStatsResponse(stat.getCount(), Map.of(), stat.getReconciledAt()))
+                .switchIfEmpty(Mono.defer(() -> repository.estimatedCount()
+                        .map(count -> new UserStatsResponse(count, Map.of(), null))));
+        var domains = repository.findTopDomains(config.getMaxDomains())
+                .collect(LinkedHashMap<String, Long>::new, (map, stat) -> map.put(stat.getDomain(), stat.getCount()));
+        return Mono.zip(total, domains,
+                (summary, top) -> new UserStatsResponse(summary.total(), top, summary.reconciledAt()));
+    }
+
+    public Mono<Void> reconcile() {
+        return Mono.defer(() -> repository.reconcile(Instant.now(), config.getReconcileBatchSize()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        flushing = Flux.interval(config.getFlushInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> flush().onErrorResume(this::failed), 1)
+                .subscribe();
+        if (!config.isReconcileEnabled()) {
+            return;
+        }
+        reconciliation = Flux.interval(config.getReconcileDelay(), config.getReconcileInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> reconcile().onErrorResume(this::failed), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void dispose() {
+        if (flushing != null) {
+            flushing.dispose();
+            flush().onErrorResume(this::failed).block(config.getFlushInterval());
+        }
+        if (reconciliation != null) {
+            reconciliation.dispose();
+        }
+    }
+
+    static String domain(final String email) {
+        return email.substring(email.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private void record(final Collection<String> emails, final long delta) {
+        if (emails.isEmpty()) {
+            return;
+        }
+        pendingTotal.addAndGet(delta * emails.size());
+        for (var email : emails) {
+            if (email != null) {
+                pendingDomains.merge(domain(email), delta, Long::sum);
+            }
+        }
+    }
+
+    private Mono<Void> failed(final Throwable error) {
+        errors.increment();
+        return Mono.empty();
+    }
+
+}
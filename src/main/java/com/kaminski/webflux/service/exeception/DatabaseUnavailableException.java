@@ -0,0 +1,18 @@
+package com.kaminski.webflux.service.exeception;
+
+import java.time.Duration;
+
+public class DatabaseUnavailableException extends ServiceUnavailableException{
+
+    private final Duration retryAfter;
+
+    public DatabaseUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.kaminski.webflux.service.exeception;
+
+public final class DuplicateKeyMessage {
+
+    private DuplicateKeyMessage() {
+    }
+
+    public static String resolve(String message) {
+        if (message != null && message.contains("email dup key")) {
+            return "E-mail already registered";
+        }
+        return "Dup key exception";
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.kaminski.webflux.service.exeception;
+
+public class InvalidCursorException extends RuntimeException{
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+}
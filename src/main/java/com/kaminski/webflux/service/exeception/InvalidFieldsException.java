@@ -0,0 +1,9 @@
+package com.kaminski.webflux.service.exeception;
+
+public class InvalidFieldsException extends RuntimeException{
+
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+
+}
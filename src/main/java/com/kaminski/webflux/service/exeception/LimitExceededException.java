@@ -0,0 +1,9 @@
+package com.kaminski.webflux.service.exeception;
+
+public class LimitExceededException extends RuntimeException{
+
+    public LimitExceededException(String message) {
+        super(message);
+    }
+
+}
@@ -1,9 +1,13 @@
 package com.kaminski.webflux.service.exeception;
 
+/**
+ * Raised for every miss, so it skips stack trace capture: the message already names the
+ * missing id and the handler never logs the trace.
+ */
 public class ObjectNotFoundException extends RuntimeException{
 
     public ObjectNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.kaminski.webflux.service.exeception;
+
+public class PreconditionFailedException extends RuntimeException{
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.kaminski.webflux.service.exeception;
+
+public class ServiceUnavailableException extends RuntimeException{
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+
+}
@@ -7,7 +7,16 @@ public class TrimStringValidator implements ConstraintValidator<TrimString, Stri
 
     @Override
     public boolean isValid(String value, ConstraintValidatorContext context) {
-        return value == null || value.trim().length() == value.length();
+        return isTrimmed(value);
     }
 
-}
\ No newline at end of file
+    /**
+     * Same result as {@code value.trim().length() == value.length()} without allocating the
+     * trimmed copy: {@link String#trim()} strips characters up to and including U+0020.
+     */
+    static boolean isTrimmed(String value) {
+        return value == null || value.isEmpty()
+                || (value.charAt(0) > ' ' && value.charAt(value.length() - 1) > ' ');
+    }
+
+}
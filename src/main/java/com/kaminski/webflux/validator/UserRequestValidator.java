@@ -0,0 +1,204 @@
+package com.kaminski.webflux.validator;
+
+import com.kaminski.webflux.model.request.UserRequest;
+import jakarta.validation.constraints.Email;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.Validator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-specialized validator for {@link UserRequest}. It checks the same constraints as the
+ * record's annotations with plain character scans, so a valid request costs no reflection and
+ * no allocation. Failures become {@link FieldError}s carrying the annotations' messages, and
+ * the resulting {@code WebExchangeBindException} looks the same as before. Emails outside the
+ * common dot-atom@hostname shape are decided by Hibernate Validator, so exotic addresses get
+ * the same result as before.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserRequestValidator implements Validator {
+
+    static final String NOT_BLANK = "must not be null or empty";
+    static final String NAME_SIZE = "must be between 3 and 50 characters";
+    static final String PASSWORD_SIZE = "must be between 3 and 20 characters";
+    static final String INVALID_EMAIL = "invalid email";
+    static final String UNTRIMMED = "Field cannot have blank spaces at the beginning or at end";
+
+    private static final int MAX_LOCAL_PART = 64;
+    private static final int MAX_DOMAIN = 255;
+    private static final int MAX_LABEL = 63;
+    private static final boolean[] ATEXT = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            ATEXT[c] = true;
+            ATEXT[Character.toUpperCase(c)] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            ATEXT[c] = true;
+        }
+        for (char c : "!#$%&'*+/=?^_`{|}~-".toCharArray()) {
+            ATEXT[c] = true;
+        }
+    }
+
+    private final jakarta.validation.Validator fallback;
+
+    @FunctionalInterface
+    private interface Violations {
+        void add(String field, String code, Object value, String message);
+    }
+
+    @Override
+    public boolean supports(final Class<?> clazz) {
+        return UserRequest.class == clazz;
+    }
+
+    @Override
+    public void validate(final Object target, final Errors errors) {
+        var request = (UserRequest) target;
+        if (!check(request, null)) {
+            check(request, (field, code, value, message) -> reject(errors, field, code, value, message));
+        }
+    }
+
+    /**
+     * Returns the violations as {@code field: message}, sorted, or an empty list when valid.
+     */
+    public List<String> validate(final UserRequest request) {
+        if (check(request, null)) {
+            return List.of();
+        }
+        var violations = new ArrayList<String>();
+        check(request, (field, code, value, message) -> violations.add(field + ": " + message));
+        violations.sort(null);
+        return violations;
+    }
+
+    private boolean check(final UserRequest request, final Violations violations) {
+        var valid = text("name", request.name(), 3, 50, NAME_SIZE, violations);
+        valid &= email(request.email(), violations);
+        valid &= text("password", request.password(), 3, 20, PASSWORD_SIZE, violations);
+        return valid;
+    }
+
+    private static boolean text(final String field, final String value, final int min, final int max,
+                                final String sizeMessage, final Violations violations) {
+        var valid = true;
+        if (!TrimStringValidator.isTrimmed(value)) {
+            valid = fail(violations, field, "TrimString", value, UNTRIMMED);
+        }
+        if (value != null && (value.length() < min || value.length() > max)) {
+            valid = fail(violations, field, "Size", value, sizeMessage);
+        }
+        if (isBlank(value)) {
+            valid = fail(violations, field, "NotBlank", value, NOT_BLANK);
+        }
+        return valid;
+    }
+
+    private boolean email(final String value, final Violations violations) {
+        var valid = true;
+        if (!TrimStringValidator.isTrimmed(value)) {
+            valid = fail(violations, "email", "TrimString", value, UNTRIMMED);
+        }
+        if (!isEmail(value)) {
+            valid = fail(violations, "email", "Email", value, INVALID_EMAIL);
+        }
+        if (isBlank(value)) {
+            valid = fail(violations, "email", "NotBlank", value, NOT_BLANK);
+        }
+        return valid;
+    }
+
+    private boolean isEmail(final String value) {
+        if (value == null || value.isEmpty() || isSimpleEmail(value)) {
+            return true;
+        }
+        return fallback.validateValue(UserRequest.class, "email", value).stream()
+                .noneMatch(violation -> violation.getConstraintDescriptor().getAnnotation() instanceof Email);
+    }
+
+    /**
+     * Dot-atom local part and hostname domain, ASCII only: a strict subset of what
+     * Hibernate's {@code @Email} accepts, so a match is always a pass.
+     */
+    static boolean isSimpleEmail(final String value) {
+        var length = value.length();
+        var at = value.lastIndexOf('@');
+        if (at <= 0 || at > MAX_LOCAL_PART || at == length - 1 || length - at - 1 > MAX_DOMAIN) {
+            return false;
+        }
+        var previous = '.';
+        for (int i = 0; i < at; i++) {
+            var c = value.charAt(i);
+            if (c == '.' ? previous == '.' : c >= 128 || !ATEXT[c]) {
+                return false;
+            }
+            previous = c;
+        }
+        if (previous == '.') {
+            return false;
+        }
+        var labelStart = at + 1;
+        for (int i = labelStart; i <= length; i++) {
+            if (i == length || value.charAt(i) == '.') {
+                var labelLength = i - labelStart;
+                if (labelLength == 0 || labelLength > MAX_LABEL
+                        || !isAlphanumeric(value.charAt(labelStart)) || !isAlphanumeric(value.charAt(i - 1))) {
+                    return false;
+                }
+                labelStart = i + 1;
+            } else if (!isAlphanumeric(value.charAt(i)) && value.charAt(i) != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAlphanumeric(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    /**
+     * Same definition as {@code @NotBlank}: null, or nothing left after {@link String#trim()}.
+     */
+    private static boolean isBlank(final String value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean fail(final Violations violations, final String field, final String code,
+                                final Object value, final String message) {
+        if (violations != null) {
+            violations.add(field, code, value, message);
+        }
+        return false;
+    }
+
+    private static void reject(final Errors errors, final String field, final String code,
+                               final Object value, final String message) {
+        var name = errors.getObjectName();
+        var codes = new String[]{code + "." + name + "." + field, code + "." + field, code};
+        var error = new FieldError(name, field, value, false, codes, null, message);
+        if (errors instanceof BindingResult bindingResult) {
+            bindingResult.addError(error);
+        } else {
+            errors.rejectValue(field, code, message);
+        }
+    }
+
+}
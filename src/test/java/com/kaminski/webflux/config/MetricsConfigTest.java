@@ -0,0 +1,60 @@
+package com.kaminski.webflux.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsConfigTest {
+
+    private SimpleMeterRegistry registry;
+    private MetricsConfig config;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        config = new MetricsConfig(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        config.removeSchedulerMetrics();
+    }
+
+    @Test
+    void testSchedulerExecutorsAreReportedTogether() {
+
+        var scheduler = Schedulers.newParallel("metrics-test", 3);
+        Flux.range(0, 30)
+                .parallel(3)
+                .runOn(scheduler)
+                .sequential()
+                .blockLast(Duration.ofSeconds(5));
+
+        assertEquals(3, value("executor.workers"));
+        var completed = value("executor.completed");
+        assertTrue(completed > 0);
+
+        scheduler.disposeGracefully().block(Duration.ofSeconds(5));
+
+        assertEquals(0, value("executor.workers"));
+        assertEquals(completed, value("executor.completed"));
+
+    }
+
+    private double value(final String name) {
+        var meters = registry.find(name).meters().stream()
+                .filter(meter -> meter.getId().getTag("scheduler").contains("metrics-test"))
+                .toList();
+        assertEquals(1, meters.size());
+        return meters.get(0).measure().iterator().next().getValue();
+    }
+
+}
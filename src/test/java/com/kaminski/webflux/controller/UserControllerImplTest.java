@@ -1,10 +1,25 @@
 package com.kaminski.webflux.controller;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.kaminski.webflux.entity.User;
 import com.kaminski.webflux.mapper.UserMapper;
+import com.kaminski.webflux.mapper.UserProtoMapper;
+import com.kaminski.webflux.model.proto.ErrorMessage;
+import com.kaminski.webflux.model.proto.UserRequestMessage;
+import com.kaminski.webflux.model.proto.UserResponseMessage;
+import com.kaminski.webflux.model.request.LookupRequest;
 import com.kaminski.webflux.model.request.UserRequest;
+import com.kaminski.webflux.model.response.BatchItemResponse;
+import com.kaminski.webflux.model.response.DeleteResponse;
+import com.kaminski.webflux.model.response.PageResponse;
 import com.kaminski.webflux.model.response.UserResponse;
+import com.kaminski.webflux.service.UserChange;
+import com.kaminski.webflux.service.UserChangeService;
 import com.kaminski.webflux.service.UserService;
+import com.kaminski.webflux.service.exeception.ObjectNotFoundException;
 import com.mongodb.reactivestreams.client.MongoClient;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -13,15 +28,33 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.MediaType.APPLICATION_CBOR;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM;
 import static org.springframework.web.reactive.function.BodyInserters.fromValue;
 import static reactor.core.publisher.Mono.just;
 import static org.mockito.Mockito.when;
@@ -35,7 +68,10 @@ class UserControllerImplTest {
     private static final String NAME = "Willian";
     private static final String EMAIL = "willian@mail.com";
     private static final String PASSWORD = "123";
+    private static final String NEXT = "MTIz";
     private static final String BASE_URI = "/v1/users";
+    private static final MediaType APPLICATION_PROTOBUF = MediaType.parseMediaType(UserController.APPLICATION_PROTOBUF_VALUE);
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
 
     @Autowired
     private WebTestClient webTestClient;
@@ -43,6 +79,9 @@ class UserControllerImplTest {
     @MockBean
     private UserService service;
 
+    @MockBean
+    private UserChangeService changeService;
+
     @MockBean
     private UserMapper mapper;
 
@@ -88,14 +127,53 @@ class UserControllerImplTest {
     }
 
 
+    @Test
+    @DisplayName("Test batch endpoint streaming NDJSON results for mixed items")
+    void testSaveAllWithMixedItems() {
+
+        final var body = String.join("\n",
+                "{\"name\":\"valid\",\"email\":\"valid@mail.com\",\"password\":\"123\"}",
+                "{\"name\":\"invalid \",\"email\":\"invalid\",\"password\":\"123\"}",
+                "{\"name\":\"duplicate\",\"email\":\"valid@mail.com\",\"password\":\"123\"}") + "\n";
+
+        when(service.saveAll(any())).thenAnswer(invocation -> invocation.<Flux<UserRequest>>getArgument(0)
+                .map(UserRequest::name)
+                .collectList()
+                .flatMapMany(names -> {
+                    assertEquals(List.of("valid", "invalid ", "duplicate"), names);
+                    return Flux.just(
+                            BatchItemResponse.created(0, ID),
+                            BatchItemResponse.invalid(1, "name must not have leading or trailing spaces"),
+                            BatchItemResponse.duplicate(2, "email already exists"));
+                }));
+
+        webTestClient.post().uri(BASE_URI.concat("/batch"))
+                .contentType(APPLICATION_NDJSON)
+                .accept(APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_NDJSON)
+                .expectBodyList(BatchItemResponse.class)
+                .value(items -> {
+                    assertEquals(3, items.size());
+                    assertEquals(BatchItemResponse.Status.CREATED, items.get(0).status());
+                    assertEquals(ID, items.get(0).id());
+                    assertEquals(BatchItemResponse.Status.INVALID, items.get(1).status());
+                    assertEquals(BatchItemResponse.Status.DUPLICATE, items.get(2).status());
+                    assertEquals(2, items.get(2).index());
+                });
+
+    }
+
     @Test
     @DisplayName("Test find by id endpoint with success")
     void testFindByIdWithSuccess() {
 
-        final var response = new UserResponse(ID, NAME, EMAIL, PASSWORD);
+        final var response = new UserResponse(ID, NAME, EMAIL);
         final var entity = User.builder().name(NAME).email(EMAIL).build();
 
-        when(service.findById(anyString())).thenReturn(just(entity));
+        when(service.findById(anyString(), any())).thenReturn(just(entity));
         when(mapper.toResponse(any(User.class))).thenReturn(response);
 
         webTestClient.get().uri(BASE_URI.concat("/").concat(ID))
@@ -107,9 +185,219 @@ class UserControllerImplTest {
                 .jsonPath("$.id").isEqualTo(ID)
                 .jsonPath("$.name").isEqualTo(NAME)
                 .jsonPath("$.email").isEqualTo(EMAIL)
-                .jsonPath("$.password").isEqualTo(PASSWORD);
+                .jsonPath("$.password").doesNotExist();
+
+        verify(service).findById(anyString(), any());
+
+    }
+
+    @Test
+    @DisplayName("Test find by id endpoint negotiating protobuf")
+    void testFindByIdAsProtobuf() {
+
+        final var response = new UserResponse(ID, NAME, EMAIL);
+        final var entity = User.builder().id(ID).name(NAME).email(EMAIL).build();
+
+        when(service.findById(anyString(), any())).thenReturn(just(entity));
+        when(mapper.toResponse(any(User.class))).thenReturn(response);
+
+        webTestClient.get().uri(BASE_URI.concat("/").concat(ID))
+                .accept(MediaType.parseMediaType(UserController.APPLICATION_PROTOBUF_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class)
+                .value(body -> assertEquals(response, toResponse(body)));
+
+    }
+
+    @Test
+    @DisplayName("Test find by id endpoint omitting fields outside the projection")
+    void testFindByIdWithProjection() {
+
+        final var response = new UserResponse(ID, NAME, null);
+        final var entity = User.builder().id(ID).name(NAME).build();
+
+        when(service.findById(anyString(), any())).thenReturn(just(entity));
+        when(mapper.toResponse(any(User.class))).thenReturn(response);
+
+        webTestClient.get().uri(BASE_URI.concat("/").concat(ID).concat("?fields=name"))
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .value(body -> assertTrue(body.contains("\"name\":\"Willian\"") && !body.contains("email")));
+
+    }
+
+    @Test
+    @DisplayName("Test find by id endpoint negotiating CBOR and Smile")
+    void testFindByIdAsCborAndSmile() {
+
+        final var response = new UserResponse(ID, NAME, EMAIL);
+        final var entity = User.builder().id(ID).name(NAME).email(EMAIL).build();
+
+        when(service.findById(anyString(), any())).thenReturn(just(entity));
+        when(mapper.toResponse(any(User.class))).thenReturn(response);
+
+        webTestClient.get().uri(BASE_URI.concat("/").concat(ID))
+                .accept(APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .value(body -> assertEquals(response, read(new CBORFactory(), body)));
 
-        verify(service).findById(anyString());
+        webTestClient.get().uri(BASE_URI.concat("/").concat(ID))
+                .accept(APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_SMILE)
+                .expectBody(byte[].class)
+                .value(body -> assertEquals(response, read(new SmileFactory(), body)));
+
+    }
+
+    @Test
+    @DisplayName("Test find by id endpoint rendering not found as protobuf")
+    void testFindByIdNotFoundAsProtobuf() {
+
+        when(service.findById(anyString(), any()))
+                .thenReturn(Mono.error(new ObjectNotFoundException("Object not found. Id: " + ID)));
+
+        webTestClient.get().uri(BASE_URI.concat("/").concat(ID))
+                .accept(APPLICATION_PROTOBUF)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(byte[].class)
+                .value(body -> {
+                    var error = parse(() -> ErrorMessage.parseFrom(body));
+                    assertEquals(NOT_FOUND.value(), error.getStatus());
+                    assertEquals("Object not found. Id: " + ID, error.getMessage());
+                });
+
+    }
+
+    @Test
+    @DisplayName("Test save endpoint decoding and validating protobuf")
+    void testSaveAsProtobuf() {
+
+        final var entity = User.builder().name("test").email("test").build();
+        final var valid = UserRequestMessage.newBuilder()
+                .setName("test").setEmail("test@mail.com").setPassword("123").build();
+        final var invalid = UserRequestMessage.newBuilder()
+                .setName("test ").setEmail("test@mail.com").setPassword("123").build();
+
+        when(service.save(any(UserRequest.class))).thenReturn(just(entity));
+
+        webTestClient.post().uri(BASE_URI)
+                .contentType(APPLICATION_PROTOBUF)
+                .bodyValue(valid.toByteArray())
+                .exchange()
+                .expectStatus().isCreated();
+
+        verify(service).save(new UserRequest("test", "test@mail.com", "123"));
+
+        webTestClient.post().uri(BASE_URI)
+                .contentType(APPLICATION_PROTOBUF)
+                .accept(APPLICATION_PROTOBUF)
+                .bodyValue(invalid.toByteArray())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(byte[].class)
+                .value(body -> {
+                    var error = parse(() -> ErrorMessage.parseFrom(body));
+                    assertEquals("Validation error", error.getError());
+                    assertEquals("name", error.getFieldErrors(0).getFieldName());
+                });
+
+    }
+
+    @Test
+    @DisplayName("Test find by id endpoint answering If-None-Match with not modified")
+    void testFindByIdNotModified() {
+
+        final var response = new UserResponse(ID, NAME, EMAIL);
+        final var entity = User.builder().id(ID).name(NAME).email(EMAIL).version(3L).build();
+
+        when(service.findById(anyString(), any())).thenReturn(just(entity));
+        when(mapper.toResponse(any(User.class))).thenReturn(response);
+
+        webTestClient.get().uri(BASE_URI.concat("/").concat(ID))
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(ETAG, "\"3\"");
+
+        webTestClient.get().uri(BASE_URI.concat("/").concat(ID))
+                .accept(APPLICATION_JSON)
+                .header(IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+    }
+
+    @Test
+    @DisplayName("Test update endpoint forwarding If-Match version")
+    void testUpdateWithIfMatch() {
+
+        final var request = new UserRequest(NAME, EMAIL, PASSWORD);
+        final var entity = User.builder().id(ID).name(NAME).email(EMAIL).version(4L).build();
+
+        when(service.update(anyString(), any(UserRequest.class), any())).thenReturn(just(entity));
+        when(mapper.toResponse(any(User.class))).thenReturn(new UserResponse(ID, NAME, EMAIL));
+
+        webTestClient.patch().uri(BASE_URI.concat("/").concat(ID))
+                .contentType(APPLICATION_JSON)
+                .header(IF_MATCH, "\"3\"")
+                .body(fromValue(request))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(ETAG, "\"4\"");
+
+        verify(service).update(anyString(), any(UserRequest.class), eq(3L));
+
+    }
+
+    @Test
+    @DisplayName("Test lookup endpoint keeps request order and reports missing ids")
+    void testLookupWithSuccess() {
+
+        final var entity = User.builder().id(ID).name(NAME).email(EMAIL).build();
+
+        when(service.findAllById(anyList())).thenReturn(just(Map.of(ID, entity)));
+        when(mapper.toResponse(any(User.class))).thenReturn(new UserResponse(ID, NAME, EMAIL));
+
+        webTestClient.post().uri(BASE_URI.concat("/lookup"))
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_JSON)
+                .body(fromValue(new LookupRequest(List.of("404", ID))))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo("404")
+                .jsonPath("$[0].found").isEqualTo(false)
+                .jsonPath("$[0].user").doesNotExist()
+                .jsonPath("$[1].id").isEqualTo(ID)
+                .jsonPath("$[1].found").isEqualTo(true)
+                .jsonPath("$[1].user.name").isEqualTo(NAME);
+
+    }
+
+    @Test
+    @DisplayName("Test email existence check endpoint")
+    void testExistsByEmail() {
+
+        when(service.existsByEmail(EMAIL)).thenReturn(just(true));
+        when(service.existsByEmail("free@mail.com")).thenReturn(just(false));
+
+        webTestClient.head().uri(BASE_URI.concat("/by-email?email=").concat(EMAIL))
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.head().uri(BASE_URI.concat("/by-email?email=free@mail.com"))
+                .exchange()
+                .expectStatus().isNotFound();
 
     }
 
@@ -117,24 +405,72 @@ class UserControllerImplTest {
     @DisplayName("Test find all endpoint with success")
     void testFindAllWithSuccess() {
 
-        final var response = new UserResponse(ID, NAME, EMAIL, PASSWORD);
+        final var response = new UserResponse(ID, NAME, EMAIL);
         final var entity = User.builder().name(NAME).email(EMAIL).build();
 
-        when(service.findAll()).thenReturn(Flux.just(entity));
+        when(service.findAll(any(), any(), any())).thenReturn(just(new PageResponse<>(List.of(entity), NEXT)));
         when(mapper.toResponse(any(User.class))).thenReturn(response);
 
-        webTestClient.get().uri(BASE_URI)
+        webTestClient.get().uri(BASE_URI.concat("?limit=1"))
                 .accept(APPLICATION_JSON)
                 .exchange()
                 .expectStatus()
                 .isOk()
                 .expectBody()
-                .jsonPath("$[0].id").isEqualTo(ID)
-                .jsonPath("$[0].name").isEqualTo(NAME)
-                .jsonPath("$[0].email").isEqualTo(EMAIL)
-                .jsonPath("$[0].password").isEqualTo(PASSWORD);
+                .jsonPath("$.content[0].id").isEqualTo(ID)
+                .jsonPath("$.content[0].name").isEqualTo(NAME)
+                .jsonPath("$.content[0].email").isEqualTo(EMAIL)
+                .jsonPath("$.content[0].password").doesNotExist()
+                .jsonPath("$.next").isEqualTo(NEXT);
 
-        verify(service).findAll();
+        verify(service).findAll(null, 1, null);
+
+    }
+
+    @Test
+    @DisplayName("Test export endpoint streaming ndjson")
+    void testExportWithSuccess() {
+
+        final var response = new UserResponse(ID, NAME, EMAIL);
+        final var entity = User.builder().name(NAME).email(EMAIL).build();
+
+        when(service.export(any())).thenReturn(Flux.just(entity, entity));
+        when(mapper.toResponse(any(User.class))).thenReturn(response);
+
+        webTestClient.get().uri(BASE_URI.concat("/export"))
+                .accept(APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_NDJSON)
+                .expectBodyList(UserResponse.class)
+                .hasSize(2);
+
+        verify(service).export(null);
+
+    }
+
+    @Test
+    @DisplayName("Test export endpoint with length-delimited protobuf")
+    void testExportAsProtobuf() {
+
+        final var first = new UserResponse(ID, NAME, EMAIL);
+        final var second = new UserResponse("456", "", null);
+
+        when(service.export(any())).thenReturn(Flux.just(User.builder().id(ID).build(), User.builder().id("456").build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(first, second);
+
+        webTestClient.get().uri(BASE_URI.concat("/export"))
+                .accept(APPLICATION_PROTOBUF)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class)
+                .value(body -> {
+                    var input = new ByteArrayInputStream(body);
+                    assertEquals(first, UserProtoMapper.toResponse(parse(() -> UserResponseMessage.parseDelimitedFrom(input))));
+                    assertEquals(second, UserProtoMapper.toResponse(parse(() -> UserResponseMessage.parseDelimitedFrom(input))));
+                    assertEquals(0, input.available());
+                });
 
     }
 
@@ -143,10 +479,10 @@ class UserControllerImplTest {
     void testUpdateWithSuccess() {
 
         final var request = new UserRequest(NAME, EMAIL, PASSWORD);
-        final var response = new UserResponse(ID, NAME, EMAIL, PASSWORD);
+        final var response = new UserResponse(ID, NAME, EMAIL);
         final var entity = User.builder().name(NAME).email(EMAIL).build();
 
-        when(service.update(anyString(), any(UserRequest.class))).thenReturn(just(entity));
+        when(service.update(anyString(), any(UserRequest.class), any())).thenReturn(just(entity));
         when(mapper.toResponse(any(User.class))).thenReturn(response);
 
         webTestClient.patch().uri(BASE_URI.concat("/".concat(ID)))
@@ -158,9 +494,9 @@ class UserControllerImplTest {
                 .jsonPath("$.id").isEqualTo(ID)
                 .jsonPath("$.name").isEqualTo(NAME)
                 .jsonPath("$.email").isEqualTo(EMAIL)
-                .jsonPath("$.password").isEqualTo(PASSWORD);
+                .jsonPath("$.password").doesNotExist();
 
-        verify(service).update(anyString(), any(UserRequest.class));
+        verify(service).update(anyString(), any(UserRequest.class), any());
         verify(mapper).toResponse(any(User.class));
 
     }
@@ -168,9 +504,7 @@ class UserControllerImplTest {
     @Test
     void testDeleteWithSuccess() {
 
-        final var entity = User.builder().name(NAME).email(EMAIL).build();
-
-        when(service.delete(anyString())).thenReturn(just(entity));
+        when(service.delete(anyString(), any())).thenReturn(Mono.empty());
 
         webTestClient.delete().uri(BASE_URI.concat("/").concat(ID))
                 .accept(APPLICATION_JSON)
@@ -178,8 +512,73 @@ class UserControllerImplTest {
                 .expectStatus()
                 .isOk();
 
-        verify(service).delete(anyString());
+        verify(service).delete(anyString(), any());
+
+    }
+
+    @Test
+    @DisplayName("Test bulk delete endpoint with success")
+    void testDeleteAllWithSuccess() {
+
+        when(service.deleteAll(anyList())).thenReturn(just(new DeleteResponse(3, 2)));
+
+        webTestClient.delete().uri(BASE_URI.concat("?ids=1,2,3"))
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.requested").isEqualTo(3)
+                .jsonPath("$.deleted").isEqualTo(2);
+
+        verify(service).deleteAll(List.of("1", "2", "3"));
+
+    }
+
+    @Test
+    @DisplayName("Test changes feed resumes from Last-Event-ID")
+    void testChangesWithSuccess() {
+
+        var user = User.builder().id(ID).name(NAME).email(EMAIL).build();
+        when(changeService.changes(anyString()))
+                .thenReturn(Flux.just(new UserChange("82ab", "update", ID, user), new UserChange("82ac", "delete", ID, null)));
+        when(mapper.toResponse(any(User.class))).thenReturn(new UserResponse(ID, NAME, EMAIL));
+
+        webTestClient.get().uri(BASE_URI.concat("/changes?resumeAfter=8200"))
+                .header("Last-Event-ID", "82aa")
+                .accept(TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .value(body -> assertTrue(body.contains("id:82ab") && body.contains("event:update")
+                        && body.contains("\"name\":\"Willian\"") && body.contains("id:82ac")
+                        && body.contains("event:delete")));
+
+        verify(changeService).changes("82aa");
+
+    }
+
+    private static UserResponse toResponse(final byte[] body) {
+        return UserProtoMapper.toResponse(parse(() -> UserResponseMessage.parseFrom(body)));
+    }
+
+    private static UserResponse read(final JsonFactory factory, final byte[] body) {
+        try {
+            return new ObjectMapper(factory).readValue(body, UserResponse.class);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> T parse(final ProtobufParser<T> parser) {
+        try {
+            return parser.parse();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
+    private interface ProtobufParser<T> {
+        T parse() throws IOException;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,94 @@
+package com.kaminski.webflux.filter;
+
+import com.kaminski.webflux.config.UserProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+class RateLimitFilterTest {
+
+    private static final WebFilterChain OK = exchange -> Mono.empty();
+    private static final WebFilterChain PENDING = exchange -> Mono.never();
+    private static final InetSocketAddress CLIENT_ADDRESS = new InetSocketAddress("10.0.0.1", 50000);
+
+    private UserProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new UserProperties();
+        properties.getRateLimit().setEnabled(true);
+        properties.getRateLimit().setRate(1);
+        properties.getRateLimit().setBurst(2);
+        properties.getRateLimit().setApiKeys(List.of("alice", "bob"));
+    }
+
+    @Test
+    void testClientOverBudgetGetsTooManyRequests() {
+
+        var filter = new RateLimitFilter(properties, new SimpleMeterRegistry());
+
+        assertNull(run(filter, "alice", OK).getResponse().getStatusCode());
+        assertNull(run(filter, "alice", OK).getResponse().getStatusCode());
+        var rejected = run(filter, "alice", OK);
+
+        assertEquals(TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(RETRY_AFTER));
+        assertNull(run(filter, "bob", OK).getResponse().getStatusCode());
+
+    }
+
+    @Test
+    void testUnknownApiKeysShareTheAddressBudget() {
+
+        var filter = new RateLimitFilter(properties, new SimpleMeterRegistry());
+
+        assertNull(run(filter, "random-1", OK).getResponse().getStatusCode());
+        assertNull(run(filter, "random-2", OK).getResponse().getStatusCode());
+
+        assertEquals(TOO_MANY_REQUESTS, run(filter, "random-3", OK).getResponse().getStatusCode());
+        assertNull(run(filter, "alice", OK).getResponse().getStatusCode());
+
+    }
+
+    @Test
+    void testConcurrencyLimitShedsWithServiceUnavailable() {
+
+        properties.getRateLimit().setBurst(100);
+        properties.getRateLimit().setInitialConcurrency(1);
+        properties.getRateLimit().setMinConcurrency(1);
+        var filter = new RateLimitFilter(properties, new SimpleMeterRegistry());
+
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/users/1").header("X-API-Key", "alice"));
+        var pending = filter.filter(exchange, PENDING).subscribe();
+        var rejected = run(filter, "bob", OK);
+
+        assertEquals(SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(RETRY_AFTER));
+
+        pending.dispose();
+        assertNull(run(filter, "bob", OK).getResponse().getStatusCode());
+
+    }
+
+    private static MockServerWebExchange run(final RateLimitFilter filter, final String apiKey, final WebFilterChain chain) {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/users/1")
+                .remoteAddress(CLIENT_ADDRESS)
+                .header("X-API-Key", apiKey));
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.kaminski.webflux.repository;
+
+import com.kaminski.webflux.config.UserProperties;
+import com.kaminski.webflux.service.exeception.DatabaseUnavailableException;
+import com.kaminski.webflux.service.exeception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MongoCallPolicyTest {
+
+    private UserProperties properties;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new UserProperties();
+        properties.getTimeouts().setDefaultTimeout(Duration.ofMillis(50));
+        properties.getTimeouts().setGrace(Duration.ofMillis(10));
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testTimeoutMapsToServiceUnavailable() {
+
+        var policy = new MongoCallPolicy(properties, registry);
+
+        StepVerifier.create(policy.protect("findById", Mono.never()))
+                .expectError(ServiceUnavailableException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(Duration.ofMillis(50), policy.timeout("findById"));
+        assertEquals(Duration.ZERO, policy.timeout("stream"));
+    }
+
+    @Test
+    void testWritesHaveNoClientDeadline() {
+
+        var policy = new MongoCallPolicy(properties, registry);
+
+        StepVerifier.create(policy.protectWrite("save", Mono.delay(Duration.ofMillis(200)).thenReturn("saved")))
+                .expectNext("saved")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testOpenCircuitFailsFast() {
+
+        properties.getCircuitBreaker().setSlidingWindowSize(2);
+        properties.getCircuitBreaker().setMinimumNumberOfCalls(2);
+        var policy = new MongoCallPolicy(properties, registry);
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(policy.protect("findById", Mono.never()))
+                    .expectError(ServiceUnavailableException.class)
+                    .verify(Duration.ofSeconds(5));
+        }
+
+        var subscriptions = new AtomicInteger();
+        var call = Mono.fromSupplier(subscriptions::incrementAndGet);
+
+        StepVerifier.create(policy.protect("findById", call))
+                .expectError(DatabaseUnavailableException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, subscriptions.get());
+    }
+
+    @Test
+    void testSlowReadIsHedged() {
+
+        properties.getTimeouts().setDefaultTimeout(Duration.ofSeconds(5));
+        properties.getHedge().setEnabled(true);
+        properties.getHedge().setOperations(List.of("FindById"));
+        properties.getHedge().setInitialDelay(Duration.ofMillis(20));
+        properties.getHedge().setBudget(1);
+        var policy = new MongoCallPolicy(properties, registry);
+
+        var attempts = new AtomicInteger();
+        var call = Mono.defer(() -> attempts.incrementAndGet() == 1
+                ? Mono.<String>never()
+                : Mono.just("hedged"));
+
+        StepVerifier.create(policy.protect("findById", call))
+                .expectNext("hedged")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(2, attempts.get());
+        assertEquals(1, registry.counter("user.repository.hedges").count());
+    }
+
+}
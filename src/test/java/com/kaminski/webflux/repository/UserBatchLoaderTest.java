@@ -0,0 +1,110 @@
+package com.kaminski.webflux.repository;
+
+import com.kaminski.webflux.config.UserProperties;
+import com.kaminski.webflux.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserBatchLoaderTest {
+
+    @Mock
+    private UserRepository repository;
+
+    private UserBatchLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new UserProperties();
+        properties.getLoader().setMaxDelay(Duration.ofMillis(50));
+        loader = new UserBatchLoader(repository, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loader.dispose();
+    }
+
+    @Test
+    void testConcurrentLoadsShareOneQuery() {
+
+        var first = User.builder().id("1").name("first").build();
+        var second = User.builder().id("2").name("second").build();
+        when(repository.findAllById(anyCollection())).thenReturn(Flux.just(first, second));
+
+        var loads = Flux.merge(loader.load("1"), loader.load("2"), loader.load("3"))
+                .map(User::getId)
+                .collectList()
+                .map(Set::copyOf);
+
+        StepVerifier.create(loads)
+                .expectNext(Set.of("1", "2"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        verify(repository, times(1)).findAllById(anyCollection());
+
+    }
+
+    @Test
+    void testLoadsFromManyThreadsAllComplete() {
+
+        when(repository.findAllById(anyCollection())).thenAnswer(invocation -> Flux.fromIterable(
+                invocation.<Collection<String>>getArgument(0)).map(id -> User.builder().id(id).build()));
+
+        var loads = Flux.range(0, 1000)
+                .parallel()
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> loader.load(String.valueOf(i)))
+                .sequential()
+                .count();
+
+        StepVerifier.create(loads)
+                .expectNext(1000L)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+    }
+
+    @Test
+    void testObjectIdLookupIgnoresCase() {
+
+        var user = User.builder().id("63d2b0c4e4b0a1f2c3d4e5f6").name("first").build();
+        when(repository.findAllById(anyCollection())).thenReturn(Flux.just(user));
+
+        StepVerifier.create(loader.load("63D2B0C4E4B0A1F2C3D4E5F6").map(User::getId))
+                .expectNext("63d2b0c4e4b0a1f2c3d4e5f6")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+    }
+
+    @Test
+    void testQueryErrorIsPropagatedToEveryLoad() {
+
+        when(repository.findAllById(anyCollection())).thenReturn(Flux.error(new IllegalStateException("down")));
+
+        StepVerifier.create(Mono.zip(loader.load("1"), loader.load("2")))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(5));
+
+    }
+
+}
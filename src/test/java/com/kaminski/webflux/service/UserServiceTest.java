@@ -1,24 +1,55 @@
 package com.kaminski.webflux.service;
 
+import com.kaminski.webflux.cache.UserCache;
+import com.kaminski.webflux.config.UserProperties;
 import com.kaminski.webflux.entity.User;
 import com.kaminski.webflux.mapper.UserMapper;
 import com.kaminski.webflux.model.request.UserRequest;
+import com.kaminski.webflux.model.response.BatchItemResponse;
+import com.kaminski.webflux.model.response.DeleteResponse;
+import com.kaminski.webflux.repository.UserBatchLoader;
 import com.kaminski.webflux.repository.UserRepository;
+import com.kaminski.webflux.service.exeception.InvalidCursorException;
+import com.kaminski.webflux.service.exeception.InvalidFieldsException;
+import com.kaminski.webflux.service.exeception.LimitExceededException;
 import com.kaminski.webflux.service.exeception.ObjectNotFoundException;
+import com.kaminski.webflux.service.exeception.PreconditionFailedException;
+import com.kaminski.webflux.validator.UserRequestValidator;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.result.DeleteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
+import reactor.util.function.Tuples;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,9 +59,27 @@ class UserServiceTest {
     @Mock
     private UserRepository repository;
 
+    @Mock
+    private UserBatchLoader batchLoader;
+
     @Mock
     private UserMapper mapper;
 
+    @Mock
+    private UserRequestValidator validator;
+
+    @Spy
+    private UserProperties properties = new UserProperties();
+
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @Mock
+    private UserStatsService stats;
+
+    @Spy
+    private UserCache cache = new UserCache(new UserProperties(), new SimpleMeterRegistry());
+
     @InjectMocks
     private UserService service;
 
@@ -41,12 +90,13 @@ class UserServiceTest {
         var entity = User.builder().name("test").email("test").build();
 
         when(mapper.toEntity(any(UserRequest.class))).thenReturn(entity);
+        when(passwordHasher.hash(any())).thenReturn(Mono.just("hash"));
         when(repository.save(any(User.class))).thenReturn(Mono.just(entity));
 
         var response = service.save(request);
 
         StepVerifier.create(response)
-                .expectNextMatches(Objects::nonNull)
+                .expectNextMatches(user -> "hash".equals(user.getPassword()))
                 .expectComplete()
                 .verify();
 
@@ -54,11 +104,38 @@ class UserServiceTest {
 
     }
 
+    @Test
+    void testSaveAll() {
+
+        var request = new UserRequest("test", "test@mail.com", "123");
+        var first = User.builder().id("1").name("test").email("test").build();
+        var second = User.builder().id("2").name("test").email("test").build();
+        var duplicate = new BulkWriteError(
+                11000, "E11000 duplicate key error index: email dup key", new BsonDocument(), 1);
+        var exception = mock(MongoBulkWriteException.class);
+
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(first, second);
+        when(passwordHasher.hash(any())).thenReturn(Mono.just("hash"));
+        when(exception.getWriteErrors()).thenReturn(List.of(duplicate));
+        when(repository.insertAll(anyList())).thenReturn(Mono.error(exception));
+
+        var response = service.saveAll(Flux.just(request, request));
+
+        StepVerifier.create(response)
+                .expectNext(BatchItemResponse.created(0, "1"))
+                .expectNext(BatchItemResponse.duplicate(1, "E-mail already registered"))
+                .expectComplete()
+                .verify();
+
+        verify(repository).insertAll(anyList());
+
+    }
+
     @Test
     void testFindById() {
 
         var entity = User.builder().name("test").email("test").build();
-        when(repository.findById(anyString())).thenReturn(Mono.just(entity));
+        when(batchLoader.load(anyString())).thenReturn(Mono.just(entity));
 
         var response = service.findById("1");
 
@@ -67,7 +144,117 @@ class UserServiceTest {
                 .expectComplete()
                 .verify();
 
-        verify(repository).findById(anyString());
+        verify(batchLoader).load(anyString());
+
+    }
+
+    @Test
+    void testFindByIdServedFromCache() {
+
+        var entity = User.builder().id("1").name("test").email("test").build();
+        when(batchLoader.load(anyString())).thenReturn(Mono.just(entity));
+
+        StepVerifier.create(service.findById("1").then(Mono.defer(() -> service.findById("1"))))
+                .expectNext(entity)
+                .expectComplete()
+                .verify();
+
+        verify(batchLoader, times(1)).load("1");
+        assertEquals(1, cache.stats().hitCount());
+
+    }
+
+    @Test
+    void testFindByIdReturnsCopyOfCachedUser() {
+
+        var entity = User.builder().id("1").name("test").email("test").build();
+        when(batchLoader.load(anyString())).thenReturn(Mono.just(entity));
+
+        service.findById("1").block().setName("changed");
+
+        StepVerifier.create(service.findById("1"))
+                .expectNextMatches(user -> "test".equals(user.getName()))
+                .expectComplete()
+                .verify();
+
+    }
+
+    @Test
+    void testFindByIdWithProjection() {
+
+        var entity = User.builder().id("1").name("test").email("test@mail.com").password("123").build();
+        when(batchLoader.load(anyString())).thenReturn(Mono.just(entity));
+
+        StepVerifier.create(service.findById("1", "name"))
+                .expectNextMatches(user -> "1".equals(user.getId()) && "test".equals(user.getName())
+                        && user.getEmail() == null && user.getPassword() == null)
+                .expectComplete()
+                .verify();
+
+    }
+
+    @Test
+    void testFindByIdWithInvalidProjection() {
+
+        StepVerifier.create(service.findById("1", "password"))
+                .expectError(InvalidFieldsException.class)
+                .verify();
+
+    }
+
+    @Test
+    void testExistsByEmailCachesAbsence() {
+
+        when(repository.existsByEmail(anyString())).thenReturn(Mono.just(false));
+
+        StepVerifier.create(service.existsByEmail("free@mail.com")
+                        .then(Mono.defer(() -> service.existsByEmail("free@mail.com"))))
+                .expectNext(false)
+                .expectComplete()
+                .verify();
+
+        verify(repository, times(1)).existsByEmail("free@mail.com");
+
+    }
+
+    @Test
+    void testFindByEmailNotFound() {
+
+        when(repository.findByEmail(anyString())).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.findByEmail("none@mail.com"))
+                .expectError(ObjectNotFoundException.class)
+                .verify();
+
+    }
+
+    @Test
+    void testFindAllById() {
+
+        var entity = User.builder().id("1").name("test").email("test").build();
+        when(repository.findAllById(anyCollection())).thenReturn(Flux.just(entity));
+
+        StepVerifier.create(service.findAllById(List.of("1", "2", "1")))
+                .expectNextMatches(users -> users.size() == 1 && users.containsKey("1"))
+                .expectComplete()
+                .verify();
+
+        verify(repository).findAllById(Set.of("1", "2"));
+
+    }
+
+    @Test
+    void testFindAllByIdMatchesObjectIdsInAnyCase() {
+
+        var id = "63d2f5a0c1e4b2a1f0e9d8c7";
+        var requested = "63D2F5A0C1E4B2A1F0E9D8C7";
+        var entity = User.builder().id(id).name("test").email("test").build();
+        when(repository.findAllById(anyCollection())).thenReturn(Flux.just(entity));
+
+        StepVerifier.create(service.findAllById(List.of(requested, "404")))
+                .expectNext(Map.of(requested, entity))
+                .expectComplete()
+                .verify();
 
     }
 
@@ -75,16 +262,93 @@ class UserServiceTest {
     void testFindAll() {
 
         var entity = User.builder().name("test").email("test").build();
-        when(repository.findAll()).thenReturn(Flux.just(entity));
+        when(repository.findAll(isNull(), anyInt(), anySet())).thenReturn(Flux.just(entity));
 
-        var response = service.findAll();
+        var response = service.findAll(null, null, null);
 
         StepVerifier.create(response)
-                .expectNextMatches(user -> user.getClass().equals(User.class))
+                .expectNextMatches(page -> page.content().size() == 1 && page.next() == null)
+                .expectComplete()
+                .verify();
+
+        verify(repository).findAll(null, 21, Set.of());
+
+    }
+
+    @Test
+    void testFindAllWithNextCursor() {
+
+        var first = User.builder().id("1").name("test").email("test").build();
+        var second = User.builder().id("2").name("test").email("test").build();
+        when(repository.findAll(anyString(), anyInt(), anySet())).thenReturn(Flux.just(first, second));
+
+        var response = service.findAll(UserCursor.encode("0"), 1, "name");
+
+        StepVerifier.create(response)
+                .expectNextMatches(page -> page.content().size() == 1
+                        && "1".equals(UserCursor.decode(page.next())))
                 .expectComplete()
                 .verify();
 
-        verify(repository).findAll();
+        verify(repository).findAll("0", 2, Set.of("name"));
+
+    }
+
+    @Test
+    void testFindAllWithLimitAboveMax() {
+
+        when(repository.findAll(isNull(), anyInt(), anySet())).thenReturn(Flux.empty());
+
+        StepVerifier.create(service.findAll(null, 10_000, null))
+                .expectNextMatches(page -> page.content().isEmpty())
+                .expectComplete()
+                .verify();
+
+        verify(repository).findAll(null, 101, Set.of());
+
+    }
+
+    @Test
+    void testFindAllWithInvalidCursor() {
+
+        StepVerifier.create(service.findAll("%%%", null, null))
+                .expectError(InvalidCursorException.class)
+                .verify();
+
+    }
+
+    @Test
+    void testSearchByPrefixWithNextCursor() {
+
+        var first = User.builder().id("1").name("Willian").build();
+        var second = User.builder().id("2").name("Wilma").build();
+        when(repository.searchByPrefix(anyString(), anyString(), anyString(), anyInt()))
+                .thenReturn(Flux.just(first, second));
+
+        var response = service.searchByPrefix("wil", UserCursor.encode("Will", "0"), 1);
+
+        StepVerifier.create(response)
+                .expectNextMatches(page -> page.content().size() == 1
+                        && Arrays.equals(new String[]{"Willian", "1"}, UserCursor.decode(page.next(), 2)))
+                .expectComplete()
+                .verify();
+
+        verify(repository).searchByPrefix("wil", "Will", "0", 2);
+
+    }
+
+    @Test
+    void testExport() {
+
+        var entity = User.builder().name("test").email("test").build();
+        when(repository.stream(anyInt(), anySet())).thenReturn(Flux.just(entity, entity));
+
+        StepVerifier.create(service.export(null))
+                .expectNextCount(2)
+                .expectComplete()
+                .verify();
+
+        verify(repository).stream(500, Set.of());
 
     }
 
@@ -93,42 +357,154 @@ class UserServiceTest {
 
         var request = new UserRequest("test", "test@mail.com", "123");
         var entity = User.builder().name("test").email("test").build();
+        var previous = User.builder().id("1").name("old").email("old@mail.com").version(1L).build();
 
-        when(mapper.toEntity(any(UserRequest.class), any(User.class))).thenReturn(entity);
-        when(repository.findById(anyString())).thenReturn(Mono.just(entity));
-        when(repository.save(any(User.class))).thenReturn(Mono.just(entity));
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(entity);
+        when(passwordHasher.hash(any())).thenReturn(Mono.just("hash"));
+        when(repository.findAndModify(anyString(), any(), any(User.class)))
+                .thenReturn(Mono.just(Tuples.of(previous, entity)));
 
-        var response = service.update("1", request);
+        var response = service.update("1", request, null);
 
         StepVerifier.create(response)
                 .expectNextMatches(Objects::nonNull)
                 .expectComplete()
                 .verify();
 
-        verify(repository).save(any(User.class));
+        verify(repository).findAndModify(eq("1"), isNull(), any(User.class));
+        verify(stats).recordEmailChanged("old@mail.com", "test");
+        verify(batchLoader, never()).load(anyString());
+        verify(repository, never()).save(any(User.class));
+
+    }
+
+    @Test
+    void testUpdateWithStaleVersion() {
+
+        var request = new UserRequest("test", null, null);
+        var changes = User.builder().name("test").build();
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(changes);
+        when(repository.findAndModify(anyString(), any(), any(User.class))).thenReturn(Mono.empty());
+        when(repository.exists(anyString())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service.update("1", request, 1L))
+                .expectError(PreconditionFailedException.class)
+                .verify();
+
+    }
+
+    @Test
+    void testUpdateNotFound() {
+
+        var request = new UserRequest("test", null, null);
+        var changes = User.builder().name("test").build();
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(changes);
+        when(repository.findAndModify(anyString(), any(), any(User.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.update("1", request, null))
+                .expectError(ObjectNotFoundException.class)
+                .verify();
+
+    }
+
+    @Test
+    void testDeleteWithStaleVersion() {
+
+        when(repository.findAndRemove(anyString(), any())).thenReturn(Mono.empty());
+        when(repository.exists(anyString())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service.delete("1", 1L))
+                .expectError(PreconditionFailedException.class)
+                .verify();
 
     }
 
     @Test
     void testDelete() {
 
-        var entity = User.builder().name("test").email("test").build();
-        when(repository.findEndRemove(anyString())).thenReturn(Mono.just(entity));
+        var entity = User.builder().id("1").email("test@mail.com").build();
+        when(repository.findAndRemove(anyString(), any())).thenReturn(Mono.just(entity));
 
-        var response = service.delete("1");
+        var response = service.delete("1", null);
 
         StepVerifier.create(response)
-                .expectNextMatches(user -> user.getClass().equals(User.class))
                 .expectComplete()
                 .verify();
 
-        verify(repository).findEndRemove(anyString());
+        verify(repository).findAndRemove(anyString(), any());
+        verify(stats).recordDeleted(List.of("test@mail.com"));
+
+    }
+
+    @Test
+    void testDeleteNotFound() {
+
+        when(repository.findAndRemove(anyString(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.delete("1", null))
+                .expectError(ObjectNotFoundException.class)
+                .verify();
+
+    }
+
+    @Test
+    void testDeleteAll() {
+
+        var ids = List.of("1", "2", "3");
+        when(repository.removeAll(anyList())).thenReturn(Mono.just(DeleteResult.acknowledged(2)));
+
+        StepVerifier.create(service.deleteAll(ids))
+                .expectNext(new DeleteResponse(3, 2))
+                .expectComplete()
+                .verify();
+
+        verify(repository).removeAll(ids);
+        verify(stats).recordDeleted(2L);
+
+    }
+
+    @Test
+    void testDeleteAllCountsDistinctIds() {
 
+        var id = "63d2f5a0c1e4b2a1f0e9d8c7";
+        when(repository.removeAll(anyList())).thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+
+        StepVerifier.create(service.deleteAll(List.of(id, id.toUpperCase(), id)))
+                .expectNext(new DeleteResponse(1, 1))
+                .expectComplete()
+                .verify();
+
+        verify(repository).removeAll(List.of(id));
+
+    }
+
+    @Test
+    void testDeleteAllAboveLimit() {
+
+        var ids = IntStream.range(0, 1001).mapToObj(String::valueOf).toList();
+
+        StepVerifier.create(service.deleteAll(ids))
+                .expectError(LimitExceededException.class)
+                .verify();
+
+        verify(repository, never()).removeAll(anyList());
+
+    }
+
+    @Test
+    void testNotFoundIsStackless(){
+        when(batchLoader.load(anyString())).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.findById("1"))
+                .expectErrorMatches(e -> e instanceof ObjectNotFoundException
+                        && e.getStackTrace().length == 0
+                        && e.getMessage().contains("Id: 1"))
+                .verify();
     }
 
     @Test
     void testHandleNotFound(){
-        when(repository.findById(anyString())).thenReturn(Mono.empty());
+        when(batchLoader.load(anyString())).thenReturn(Mono.empty());
 
         try {
             service.findById("1").block();
@@ -0,0 +1,143 @@
+package com.kaminski.webflux.service;
+
+import com.kaminski.webflux.config.UserProperties;
+import com.kaminski.webflux.entity.UserStat;
+import com.kaminski.webflux.repository.UserStatsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserStatsServiceTest {
+
+    @Mock
+    private UserStatsRepository repository;
+
+    private UserStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserStatsService(repository, new UserProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testRecordCreatedGroupsByDomain() {
+
+        when(repository.increment(anyLong(), anyMap())).thenReturn(Mono.empty());
+
+        service.recordCreated(List.of("a@Mail.com", "b@mail.com", "c@corp.io"));
+        service.recordDeleted(List.of("d@corp.io"));
+        service.recordEmailChanged("a@mail.com", "a@other.org");
+
+        StepVerifier.create(service.flush())
+                .expectComplete()
+                .verify();
+
+        verify(repository).increment(2, Map.of("mail.com", 1L, "other.org", 1L));
+
+    }
+
+    @Test
+    void testRecordDeletedCountOnlyMovesTotal() {
+
+        when(repository.increment(anyLong(), anyMap())).thenReturn(Mono.empty());
+
+        service.recordDeleted(3L);
+
+        StepVerifier.create(service.flush())
+                .expectComplete()
+                .verify();
+
+        verify(repository).increment(-3, Map.of());
+
+    }
+
+    @Test
+    void testRecordEmailChangedWithinDomainIsNoop() {
+
+        service.recordEmailChanged("a@mail.com", "b@MAIL.com");
+
+        StepVerifier.create(service.flush())
+                .expectComplete()
+                .verify();
+
+        verify(repository, never()).increment(anyLong(), anyMap());
+
+    }
+
+    @Test
+    void testFailedFlushKeepsDeltas() {
+
+        when(repository.increment(anyLong(), anyMap()))
+                .thenReturn(Mono.error(new IllegalStateException("down")))
+                .thenReturn(Mono.empty());
+
+        service.recordCreated(List.of("a@mail.com"));
+
+        StepVerifier.create(service.flush())
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        service.recordCreated(List.of("b@mail.com"));
+
+        StepVerifier.create(service.flush())
+                .expectComplete()
+                .verify();
+
+        verify(repository).increment(2, Map.of("mail.com", 2L));
+
+    }
+
+    @Test
+    void testStatsFromSummary() {
+
+        var reconciledAt = Instant.parse("2026-01-01T00:00:00Z");
+        when(repository.findTotal()).thenReturn(Mono.just(
+                UserStat.builder().id(UserStat.TOTAL_ID).count(3).reconciledAt(reconciledAt).build()));
+        when(repository.findTopDomains(anyInt())).thenReturn(Flux.just(
+                UserStat.builder().domain("mail.com").count(2).build(),
+                UserStat.builder().domain("corp.io").count(1).build()));
+
+        StepVerifier.create(service.stats())
+                .expectNextMatches(stats -> stats.total() == 3
+                        && stats.domains().equals(Map.of("mail.com", 2L, "corp.io", 1L))
+                        && reconciledAt.equals(stats.reconciledAt()))
+                .expectComplete()
+                .verify();
+
+        verify(repository, never()).estimatedCount();
+
+    }
+
+    @Test
+    void testStatsFallsBackToEstimatedCount() {
+
+        when(repository.findTotal()).thenReturn(Mono.empty());
+        when(repository.findTopDomains(anyInt())).thenReturn(Flux.empty());
+        when(repository.estimatedCount()).thenReturn(Mono.just(42L));
+
+        StepVerifier.create(service.stats())
+                .expectNextMatches(stats -> stats.total() == 42 && stats.reconciledAt() == null)
+                .expectComplete()
+                .verify();
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.kaminski.webflux.validator;
+
+import com.kaminski.webflux.model.request.UserRequest;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserRequestValidatorTest {
+
+    private static final List<String> NAMES = List.of("Willian", "Wi", " Willian", "Willian ", "   ", "",
+            "x".repeat(50), "x".repeat(51), "João");
+    private static final List<String> EMAILS = List.of("willian@mail.com", "willian", "willian@", "@mail.com",
+            "wil..lian@mail.com", ".willian@mail.com", "willian.@mail.com", "willian@mail", "willian@-mail.com",
+            "willian@mail-.com", "willian@mail..com", "w+tag@sub.mail.com", "\"quoted name\"@mail.com",
+            "willian@[127.0.0.1]", "joão@mail.com", "willian@máil.com", " willian@mail.com", "a@b@mail.com",
+            "x".repeat(65) + "@mail.com", "willian@" + "x".repeat(64) + ".com", "");
+    private static final List<String> PASSWORDS = List.of("123456", "12", "x".repeat(21), " 123456", "\t");
+
+    private static ValidatorFactory factory;
+    private static Validator reference;
+    private static UserRequestValidator validator;
+
+    @BeforeAll
+    static void setUp() {
+        factory = Validation.buildDefaultValidatorFactory();
+        reference = factory.getValidator();
+        validator = new UserRequestValidator(reference);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        factory.close();
+    }
+
+    @Test
+    void testMatchesBeanValidation() {
+
+        Stream.of(
+                NAMES.stream().map(name -> new UserRequest(name, "willian@mail.com", "123456")),
+                EMAILS.stream().map(email -> new UserRequest("Willian", email, "123456")),
+                PASSWORDS.stream().map(password -> new UserRequest("Willian", "willian@mail.com", password)),
+                Stream.of(new UserRequest(null, null, null))
+        ).flatMap(requests -> requests).forEach(request -> {
+            var expected = reference.validate(request).stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .toList();
+            assertEquals(expected, validator.validate(request), request::toString);
+        });
+
+    }
+
+    @Test
+    void testAddsFieldErrorsToBindingResult() {
+
+        var request = new UserRequest(" Willian", "willian", "1");
+        var errors = new BeanPropertyBindingResult(request, "userRequest");
+
+        validator.validate(request, errors);
+
+        var fields = errors.getFieldErrors().stream()
+                .map(error -> error.getField() + ": " + error.getDefaultMessage())
+                .sorted()
+                .toList();
+        assertEquals(List.of(
+                "email: invalid email",
+                "name: Field cannot have blank spaces at the beginning or at end",
+                "password: must be between 3 and 20 characters"), fields);
+        assertTrue(errors.getFieldErrors().stream().map(FieldError::getCodes).allMatch(codes -> codes.length == 3));
+
+    }
+
+    @Test
+    void testTrimStringMatchesTrim() {
+
+        Stream.of(null, "", " ", "a", " a", "a ", "\ta", "a\n", " a", "a b").forEach(value ->
+                assertEquals(value == null || value.trim().length() == value.length(),
+                        TrimStringValidator.isTrimmed(value), String.valueOf(value)));
+
+    }
+
+}